@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Keeps the game in progress saved to one file, written on a background thread so a move never waits for the disk.
+// Saves and deletes share one pending slot that the background thread empties: a save or delete requested while
+// another is still waiting replaces it, so however fast moves come only the newest request is carried out next,
+// and a delete for a finished game can never remove the save of a game started after it.
+class AutoSaver {
+    private static final Metrics.Counter SAVES = Metrics.shared().counter(
+            "treasure_autosaves_total", "Games in progress saved to disk");
+    private static final Metrics.Counter COALESCED = Metrics.shared().counter(
+            "treasure_autosaves_coalesced_total", "Snapshots replaced by a newer one before they were written");
+
+    private final Path file;
+    // Next request for the writer: null when there is none, empty to delete the save, otherwise a snapshot to write
+    private final AtomicReference<Optional<GameSnapshot>> pending = new AtomicReference<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AutoSaver(String file) {
+        this.file = Paths.get(file);
+    }
+
+    // Method to queue a snapshot to be saved; returns straight away
+    public void save(GameSnapshot snapshot) {
+        request(Optional.of(snapshot));
+    }
+
+    // Method to delete the save, e.g. when the game is over; a snapshot still waiting is dropped
+    public void discard() {
+        request(Optional.empty());
+    }
+
+    // Method to wait until everything queued so far is on disk, e.g. before the program exits
+    public void flush() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public boolean hasSave() {
+        return Files.exists(file);
+    }
+
+    public GameSnapshot load() throws IOException {
+        return GameSnapshot.read(file);
+    }
+
+    private void request(Optional<GameSnapshot> next) {
+        Optional<GameSnapshot> replaced = pending.getAndSet(next);
+        if (replaced == null) {
+            writer.execute(this::carryOut); // Otherwise the task already queued picks up this request instead
+        } else if (replaced.isPresent()) {
+            COALESCED.increment();
+        }
+    }
+
+    // Writer thread: carry out the newest request. A task is only queued when the slot goes from empty to filled,
+    // and only a task empties it, so every task finds a request waiting
+    private void carryOut() {
+        Optional<GameSnapshot> next = pending.getAndSet(null);
+        try {
+            if (next.isPresent()) {
+                next.get().write(file);
+                SAVES.increment();
+            } else {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+// Measures of how hard a generated board is to clear:
+// - parMoves: the shortest walk through every treasure, from RouteSolver;
+// - chokePoints: free cells that would cut the free area in two if they were blocked, i.e. the articulation points
+//   of the free cells, found with an iterative Tarjan search. Many choke points mean narrow corridors and dead ends;
+// - treasureSpread: the mean Manhattan distance between two treasures.
+// measureCheap() fills in everything but par, so a search can reject a board before paying for the route solve.
+class BoardDifficulty {
+    final int parMoves; // -1 until measured
+    final int chokePoints;
+    final double treasureSpread;
+
+    private BoardDifficulty(int parMoves, int chokePoints, double treasureSpread) {
+        this.parMoves = parMoves;
+        this.chokePoints = chokePoints;
+        this.treasureSpread = treasureSpread;
+    }
+
+    public static BoardDifficulty measure(GameBoard board) {
+        return measureCheap(board).withPar(RouteSolver.shortestTour(board));
+    }
+
+    public static BoardDifficulty measureCheap(GameBoard board) {
+        return new BoardDifficulty(-1, countChokePoints(board), treasureSpread(board));
+    }
+
+    public BoardDifficulty withPar(int parMoves) {
+        return new BoardDifficulty(parMoves, chokePoints, treasureSpread);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("par=%d chokePoints=%d spread=%.1f", parMoves, chokePoints, treasureSpread);
+    }
+
+    private static double treasureSpread(GameBoard board) {
+        int[] treasures = new int[board.size()];
+        int count = 0;
+        for (int cell = 0; cell < board.size(); cell++) {
+            if (board.get(cell) == GameBoard.TREASURE) {
+                treasures[count++] = cell;
+            }
+        }
+        if (count < 2) {
+            return 0;
+        }
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++) {
+                total += Math.abs(board.rowOf(treasures[i]) - board.rowOf(treasures[j]))
+                        + Math.abs(board.colOf(treasures[i]) - board.colOf(treasures[j]));
+            }
+        }
+        return (double) total / ((long) count * (count - 1) / 2);
+    }
+
+    // Method to count articulation points of the free cells with a depth-first search that keeps its own stack
+    private static int countChokePoints(GameBoard board) {
+        int size = board.size();
+        int cols = board.getCols();
+        int[] discovered = new int[size]; // Visit order from 1; 0 means not visited yet
+        int[] low = new int[size];
+        int[] parent = new int[size];
+        int[] nextNeighbour = new int[size]; // Which of the four neighbours the search tries next
+        int[] stack = new int[size];
+        boolean[] choke = new boolean[size];
+        int time = 0;
+        int count = 0;
+
+        for (int root = 0; root < size; root++) {
+            if (board.get(root) == GameBoard.OBSTACLE || discovered[root] != 0) {
+                continue;
+            }
+            int rootChildren = 0;
+            int top = 0;
+            stack[top++] = root;
+            parent[root] = -1;
+            discovered[root] = low[root] = ++time;
+            while (top > 0) {
+                int cell = stack[top - 1];
+                if (nextNeighbour[cell] < 4) {
+                    int neighbour = neighbour(board, cell, nextNeighbour[cell]++, cols);
+                    if (neighbour < 0 || board.get(neighbour) == GameBoard.OBSTACLE) {
+                        continue;
+                    }
+                    if (discovered[neighbour] == 0) {
+                        parent[neighbour] = cell;
+                        discovered[neighbour] = low[neighbour] = ++time;
+                        stack[top++] = neighbour;
+                        if (cell == root) {
+                            rootChildren++;
+                        }
+                    } else if (neighbour != parent[cell]) {
+                        low[cell] = Math.min(low[cell], discovered[neighbour]);
+                    }
+                    continue;
+                }
+                top--; // Every neighbour is done; report back to the parent
+                int up = parent[cell];
+                if (up >= 0) {
+                    low[up] = Math.min(low[up], low[cell]);
+                    if (up != root && low[cell] >= discovered[up] && !choke[up]) {
+                        choke[up] = true;
+                        count++;
+                    }
+                }
+            }
+            if (rootChildren > 1) {
+                choke[root] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Method to get the cell in one of the four directions, or -1 past the edge of the board
+    private static int neighbour(GameBoard board, int cell, int direction, int cols) {
+        int row = board.rowOf(cell);
+        int col = board.colOf(cell);
+        return switch (direction) {
+            case 0 -> row > 0 ? cell - cols : -1;
+            case 1 -> row < board.getRows() - 1 ? cell + cols : -1;
+            case 2 -> col > 0 ? cell - 1 : -1;
+            default -> col < cols - 1 ? cell + 1 : -1;
+        };
+    }
+}
@@ -0,0 +1,143 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+// Keeps a few boards generated ahead of time so starting a game never waits for generation.
+// A low-priority daemon thread generates boards with its own engine, works out their par moves and puts them in a
+// bounded queue; it blocks while the queue is full. take() hands out a ready board, or generates one on the
+// caller's thread if the producer has not caught up.
+// With matchTypicalDifficulty(), each board the producer makes is instead the closest of many candidates to the
+// median difficulty of boards with these settings, so every player gets a board of about the same difficulty.
+// Boards generated by take() are always plain ones, since the caller is usually the EDT and the search can run for
+// SEARCH_BUDGET_NANOS. Each caller borrows a spare engine for it, so callers on many threads (such as the game
+// server's requests) generate in parallel, and only as many engines are kept as were ever in use at once.
+class BoardPool {
+    private static final int TYPICAL_SAMPLES = 256; // Boards measured to find the typical difficulty
+    private static final int SEARCH_CANDIDATES = 256;
+    private static final long SEARCH_BUDGET_NANOS = 50_000_000L;
+    private static final double SEARCH_TOLERANCE = 0.1; // Within 10% of the target, summed over the measures
+    private static final Metrics.Counter MISSES = Metrics.shared().counter(
+            "treasure_board_pool_misses_total", "Games that had to generate a board because the pool was empty");
+
+    // A generated board together with its par moves
+    static final class Board {
+        final GameEngine.Layout layout;
+        final int parMoves;
+
+        private Board(GameEngine.Layout layout, int parMoves) {
+            this.layout = layout;
+            this.parMoves = parMoves;
+        }
+    }
+
+    private final BlockingQueue<Board> ready;
+    private final GameEngine generator; // Only used by the producer thread
+    private final ConcurrentLinkedQueue<GameEngine> spareEngines = new ConcurrentLinkedQueue<>(); // For take() misses
+    private final SplittableRandom spareSeeds; // Guarded by its own lock
+    private final RouteSolver routeSolver;
+    private final SplittableRandom searchSeeds = new SplittableRandom(); // Only used by the producer thread
+    private volatile DifficultyGenerator difficulty;
+    private volatile DifficultyGenerator.Target target; // Null until the producer has worked it out
+    private Thread producer;
+
+    // Boards are generated with the given engine settings; seeds come from the given generator
+    public BoardPool(int rows, int cols, int treasureCount, int minObstaclePercent, int maxObstaclePercent,
+                     SplittableRandom seeds, int capacity, RouteSolver routeSolver) {
+        this.ready = new ArrayBlockingQueue<>(capacity);
+        this.generator = new GameEngine(rows, cols, treasureCount, minObstaclePercent, maxObstaclePercent, seeds);
+        this.spareSeeds = seeds.split();
+        this.routeSolver = routeSolver;
+    }
+
+    // Method to search for boards of typical difficulty on parallelism low-priority threads; call before start()
+    public void matchTypicalDifficulty(int parallelism) {
+        ForkJoinPool searchPool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }, null, false);
+        difficulty = new DifficultyGenerator(generator.getBoard().getRows(), generator.getBoard().getCols(),
+                generator.getTreasureCount(), generator.getMinObstaclePercent(), generator.getMaxObstaclePercent(),
+                searchPool);
+    }
+
+    // Method to start the producer thread
+    public void start() {
+        producer = new Thread(this::produce, "board-pool");
+        producer.setDaemon(true);
+        producer.setPriority(Thread.MIN_PRIORITY);
+        producer.start();
+    }
+
+    // Method to stop the producer thread; it exits once the board it is working on is done
+    public void stop() {
+        if (producer != null) {
+            producer.interrupt();
+        }
+    }
+
+    // Method to get the next board without waiting for the producer; on a miss a plain board is generated here
+    public Board take() {
+        Board board = ready.poll();
+        if (board != null) {
+            return board;
+        }
+        MISSES.increment();
+        GameEngine engine = spareEngines.poll();
+        if (engine == null) {
+            SplittableRandom seeds;
+            synchronized (spareSeeds) {
+                seeds = spareSeeds.split();
+            }
+            engine = new GameEngine(generator.getBoard().getRows(), generator.getBoard().getCols(),
+                    generator.getTreasureCount(), generator.getMinObstaclePercent(), generator.getMaxObstaclePercent(),
+                    seeds);
+        }
+        try {
+            return generatePlain(engine);
+        } finally {
+            spareEngines.offer(engine);
+        }
+    }
+
+    // Producer thread: keep the queue full
+    private void produce() {
+        if (difficulty != null) {
+            target = difficulty.typicalTarget(0, TYPICAL_SAMPLES, SEARCH_TOLERANCE); // Same target on every run
+        }
+        try {
+            while (true) {
+                ready.put(generate());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Method to generate one board and check that every treasure can be collected, or search for one near the target
+    private Board generate() {
+        DifficultyGenerator.Target goal = target;
+        if (goal != null) {
+            DifficultyGenerator.Result result = difficulty.generate(goal, searchSeeds.nextLong(),
+                    SEARCH_CANDIDATES, SEARCH_BUDGET_NANOS);
+            generator.newGame(result.seed);
+            return new Board(generator.getLayout(), result.difficulty.parMoves);
+        }
+        return generatePlain(generator);
+    }
+
+    // Method to generate boards on the given engine until every treasure on one can be collected
+    private Board generatePlain(GameEngine engine) {
+        while (true) {
+            engine.newGame();
+            int parMoves = routeSolver.parMoves(engine.getSeed(), engine.getBoard());
+            if (parMoves >= 0) {
+                return new Board(engine.getLayout(), parMoves);
+            }
+        }
+    }
+}
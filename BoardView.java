@@ -0,0 +1,191 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Single component that paints the game board directly from a GameBoard.
+// The board is split into square tiles that are rendered into off-screen images and reused between paints;
+// only tiles inside the clip rectangle are drawn and only tiles touched by a change are re-rendered,
+// so the cost of a frame depends on the viewport and not on the size of the map.
+class BoardView extends JComponent {
+    private static final int TILE_CELLS = 8; // Tiles are TILE_CELLS x TILE_CELLS cells
+    private static final int MAX_CACHED_TILES = 96;
+    private static final int MIN_CELL_SIZE = 40;
+    private static final int MAX_CELL_SIZE = 120;
+    private static final int SPRITE_INSET = 3;
+    private static final LatencyHistogram PAINT = Metrics.shared().histogram(
+            "treasure_board_paint_seconds", "Time to paint the visible part of the board");
+    private static final Metrics.Counter TILE_RENDERS = Metrics.shared().counter(
+            "treasure_tile_renders_total", "Board tiles rendered into their off-screen images");
+
+    // Off-screen image for one tile and whether it still matches the board
+    private static class Tile {
+        BufferedImage image;
+        boolean valid;
+    }
+
+    private final GameBoard board;
+    private final int revealRadius;
+    private final int tileRows;
+    private final int tileCols;
+    private final Map<Integer, Tile> tiles = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Tile> eldest) {
+            return size() > MAX_CACHED_TILES; // Least recently drawn tiles are dropped first
+        }
+    };
+    private final SpriteAtlas sprites;
+    private int cellSize = MIN_CELL_SIZE;
+    private int playerX = -1, playerY = -1;
+    private Runnable paintListener; // Told after each paint, e.g. to measure input latency
+
+    public BoardView(GameBoard board, int revealRadius, SpriteAtlas sprites) {
+        this.board = board;
+        this.sprites = sprites;
+        this.revealRadius = revealRadius;
+        this.tileRows = (board.getRows() + TILE_CELLS - 1) / TILE_CELLS;
+        this.tileCols = (board.getCols() + TILE_CELLS - 1) / TILE_CELLS;
+        setOpaque(true);
+        setFocusable(false);
+    }
+
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    // Method to pick the largest cell size that fits the board into the given viewport
+    public void fitTo(Dimension viewport) {
+        int size = Math.min(viewport.width / board.getCols(), viewport.height / board.getRows());
+        size = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, size));
+        if (size != cellSize) {
+            cellSize = size;
+            invalidateTiles();
+            revalidate();
+        }
+    }
+
+    // Method to move the reveal window; only the old and new windows are marked dirty
+    public void setPlayer(int x, int y) {
+        if (playerX >= 0) {
+            cellsChanged(playerX - revealRadius, playerY - revealRadius, playerX + revealRadius, playerY + revealRadius);
+        }
+        playerX = x;
+        playerY = y;
+        cellsChanged(x - revealRadius, y - revealRadius, x + revealRadius, y + revealRadius);
+        scrollRectToVisible(cellBounds(x - revealRadius, y - revealRadius, x + revealRadius, y + revealRadius));
+    }
+
+    // Method to mark a rectangle of cells as changed so the tiles covering it are re-rendered
+    public void cellsChanged(int fromX, int fromY, int toX, int toY) {
+        fromX = Math.max(0, fromX);
+        fromY = Math.max(0, fromY);
+        toX = Math.min(board.getRows() - 1, toX);
+        toY = Math.min(board.getCols() - 1, toY);
+        if (fromX > toX || fromY > toY) {
+            return;
+        }
+        for (int tileRow = fromX / TILE_CELLS; tileRow <= toX / TILE_CELLS; tileRow++) {
+            for (int tileCol = fromY / TILE_CELLS; tileCol <= toY / TILE_CELLS; tileCol++) {
+                Tile tile = tiles.get(tileRow * tileCols + tileCol);
+                if (tile != null) {
+                    tile.valid = false;
+                }
+            }
+        }
+        repaint(cellBounds(fromX, fromY, toX, toY));
+    }
+
+    public void setPaintListener(Runnable listener) {
+        paintListener = listener;
+    }
+
+    // Method to throw away every rendered tile, e.g. after the cell size changes
+    public void invalidateTiles() {
+        tiles.clear();
+        repaint();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(board.getCols() * cellSize, board.getRows() * cellSize);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        int tileSize = TILE_CELLS * cellSize;
+        int firstTileRow = Math.max(0, clip.y / tileSize);
+        int lastTileRow = Math.min(tileRows - 1, (clip.y + clip.height - 1) / tileSize);
+        int firstTileCol = Math.max(0, clip.x / tileSize);
+        int lastTileCol = Math.min(tileCols - 1, (clip.x + clip.width - 1) / tileSize);
+
+        for (int tileRow = firstTileRow; tileRow <= lastTileRow; tileRow++) {
+            for (int tileCol = firstTileCol; tileCol <= lastTileCol; tileCol++) {
+                Tile tile = tiles.computeIfAbsent(tileRow * tileCols + tileCol, key -> new Tile());
+                if (!tile.valid) {
+                    renderTile(tile, tileRow, tileCol, tileSize);
+                }
+                g.drawImage(tile.image, tileCol * tileSize, tileRow * tileSize, null);
+            }
+        }
+        PAINT.recordSince(start);
+        if (paintListener != null) {
+            paintListener.run();
+        }
+    }
+
+    // Method to draw every cell of one tile into its off-screen image
+    private void renderTile(Tile tile, int tileRow, int tileCol, int tileSize) {
+        TILE_RENDERS.increment();
+        if (tile.image == null || tile.image.getWidth() != tileSize) {
+            GraphicsConfiguration config = getGraphicsConfiguration();
+            tile.image = config != null
+                    ? config.createCompatibleImage(tileSize, tileSize)
+                    : new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+        }
+        Graphics2D g = tile.image.createGraphics();
+        g.setColor(getParent() != null ? getParent().getBackground() : Color.LIGHT_GRAY);
+        g.fillRect(0, 0, tileSize, tileSize); // Background for the part of an edge tile past the board
+
+        int lastRow = Math.min(board.getRows(), (tileRow + 1) * TILE_CELLS);
+        int lastCol = Math.min(board.getCols(), (tileCol + 1) * TILE_CELLS);
+        for (int x = tileRow * TILE_CELLS; x < lastRow; x++) {
+            for (int y = tileCol * TILE_CELLS; y < lastCol; y++) {
+                int px = (y - tileCol * TILE_CELLS) * cellSize;
+                int py = (x - tileRow * TILE_CELLS) * cellSize;
+                boolean visible = playerX >= 0 && Math.abs(playerX - x) <= revealRadius && Math.abs(playerY - y) <= revealRadius;
+                g.setColor(visible ? Color.WHITE : Color.GRAY); // Hidden cells are gray
+                g.fillRect(px, py, cellSize, cellSize);
+                if (visible) {
+                    Image sprite = spriteFor(board.get(x, y));
+                    if (sprite != null) {
+                        g.drawImage(sprite, px + SPRITE_INSET, py + SPRITE_INSET, null); // Already at cell size
+                    }
+                }
+                g.setColor(Color.BLACK);
+                g.drawRect(px, py, cellSize - 1, cellSize - 1);
+            }
+        }
+        g.dispose();
+        tile.valid = true;
+    }
+
+    private Image spriteFor(byte cell) {
+        int size = cellSize - 2 * SPRITE_INSET;
+        return switch (cell) {
+            case GameBoard.PLAYER -> sprites.get(SpriteAtlas.Sprite.PLAYER, size);
+            case GameBoard.TREASURE -> sprites.get(SpriteAtlas.Sprite.TREASURE, size);
+            case GameBoard.OBSTACLE -> sprites.get(SpriteAtlas.Sprite.OBSTACLE, size);
+            default -> null;
+        };
+    }
+
+    private Rectangle cellBounds(int fromX, int fromY, int toX, int toY) {
+        return new Rectangle(fromY * cellSize, fromX * cellSize, (toY - fromY + 1) * cellSize, (toX - fromX + 1) * cellSize);
+    }
+}
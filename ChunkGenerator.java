@@ -0,0 +1,89 @@
+import java.util.SplittableRandom;
+
+// Builds world chunks from the world seed and the chunk's coordinates alone, so a chunk that was thrown away comes
+// back identical. Neighbouring chunks agree on one gate cell on each shared edge and both keep their side of it
+// free. Obstacles are only placed through the ReachabilityEngine, which keeps every free cell of a chunk connected,
+// so every gate of a chunk can be reached from every other: the whole world is one connected region and every
+// treasure in it can be reached from the start.
+// Not thread-safe; each thread that generates chunks has its own generator.
+class ChunkGenerator {
+    private static final int EAST = 0, SOUTH = 1; // The two edges each chunk owns the gate of
+    private static final Metrics.Counter GENERATED = Metrics.shared().counter(
+            "treasure_world_chunks_generated_total", "Exploration chunks generated from the world seed");
+
+    private final long worldSeed;
+    private final int treasuresPerChunk;
+    private final int minObstaclePercent;
+    private final int maxObstaclePercent;
+    private final GameBoard board = new GameBoard(WorldChunk.SIZE, WorldChunk.SIZE);
+    private final ReachabilityEngine reachability = new ReachabilityEngine(board);
+    private final int[] emptyCells = new int[WorldChunk.CELLS];
+
+    public ChunkGenerator(long worldSeed, int treasuresPerChunk, int minObstaclePercent, int maxObstaclePercent) {
+        this.worldSeed = worldSeed;
+        this.treasuresPerChunk = treasuresPerChunk;
+        this.minObstaclePercent = minObstaclePercent;
+        this.maxObstaclePercent = maxObstaclePercent;
+    }
+
+    // Method to build the chunk at the given chunk coordinates
+    public WorldChunk generate(int chunkRow, int chunkCol) {
+        long chunkSeed = GameEngine.mixSeed(worldSeed ^ GameEngine.mixSeed(WorldChunk.key(chunkRow, chunkCol)));
+        SplittableRandom random = new SplittableRandom(chunkSeed);
+        board.clear();
+
+        // Gates and the start cell are marked as the player so they are neither drawn as obstacles nor treasures
+        int last = WorldChunk.SIZE - 1;
+        reserve(0, gate(chunkRow - 1, chunkCol, SOUTH));
+        reserve(last, gate(chunkRow, chunkCol, SOUTH));
+        reserve(gate(chunkRow, chunkCol - 1, EAST), 0);
+        reserve(gate(chunkRow, chunkCol, EAST), last);
+        if (chunkRow == 0 && chunkCol == 0) {
+            reserve(ChunkedWorld.START_ROW, ChunkedWorld.START_COL);
+        }
+
+        int emptyCount = 0;
+        for (int cell = 0; cell < board.size(); cell++) {
+            if (board.get(cell) == GameBoard.EMPTY) {
+                emptyCells[emptyCount++] = cell;
+            }
+        }
+        for (int placed = 0; placed < treasuresPerChunk && emptyCount > 0; placed++) {
+            int pick = random.nextInt(emptyCount);
+            board.set(emptyCells[pick], GameBoard.TREASURE);
+            emptyCells[pick] = emptyCells[--emptyCount];
+        }
+
+        int minObstacles = board.size() * minObstaclePercent / 100;
+        int spread = board.size() * (maxObstaclePercent - minObstaclePercent + 1) / 100;
+        int obstacles = minObstacles + random.nextInt(Math.max(1, spread));
+        while (obstacles > 0 && emptyCount > 0) {
+            int pick = random.nextInt(emptyCount);
+            int cell = emptyCells[pick];
+            emptyCells[pick] = emptyCells[--emptyCount];
+            if (reachability.tryPlaceObstacle(cell)) { // Keeps the gates and treasures joined
+                obstacles--;
+            }
+        }
+        reachability.takeSearchCount();
+
+        byte[] cells = board.copyCells();
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (cells[cell] == GameBoard.PLAYER) {
+                cells[cell] = GameBoard.EMPTY;
+            }
+        }
+        GENERATED.increment();
+        return new WorldChunk(chunkRow, chunkCol, cells);
+    }
+
+    private void reserve(int localRow, int localCol) {
+        board.set(board.index(localRow, localCol), GameBoard.PLAYER);
+    }
+
+    // Method to find where the gate on the given edge of a chunk is; the neighbour across it computes the same cell
+    private int gate(int chunkRow, int chunkCol, int edge) {
+        long hash = GameEngine.mixSeed(worldSeed + GameEngine.mixSeed(WorldChunk.key(chunkRow, chunkCol) * 2 + edge));
+        return (int) Math.floorMod(hash, (long) WorldChunk.SIZE - 2) + 1; // Off the corners, which have two neighbours
+    }
+}
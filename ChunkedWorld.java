@@ -0,0 +1,244 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+// Unbounded world for exploration mode, split into WorldChunk pieces that exist only near the player.
+// At most cacheChunks chunks are held in memory, in least-recently-used order. An evicted chunk is written to the
+// world's directory if it changed, and dropped otherwise since it can be generated again, so memory stays flat
+// however far the player travels. Each move asks a low-priority daemon thread to load or generate the chunks within
+// STREAM_RADIUS cells of the player, so chunks are usually ready before the reveal window reaches them; a chunk that
+// is still missing is loaded on the caller's thread. All chunk access is synchronized on the world.
+class ChunkedWorld {
+    static final int START_ROW = WorldChunk.SIZE / 2; // The player starts in the middle of chunk (0, 0)
+    static final int START_COL = WorldChunk.SIZE / 2;
+    static final int STREAM_RADIUS = 24; // Cells around the player whose chunks are loaded ahead of time
+    private static final Metrics.Counter CHUNKS_SAVED = Metrics.shared().counter(
+            "treasure_world_chunks_saved_total", "Changed exploration chunks written to disk when evicted");
+    private static final Metrics.Counter CHUNKS_READ = Metrics.shared().counter(
+            "treasure_world_chunks_read_total", "Exploration chunks read back from disk");
+    private static final Metrics.Counter STREAM_MISSES = Metrics.shared().counter(
+            "treasure_world_stream_misses_total", "Chunks loaded on the game thread because streaming had not caught up");
+
+    private final long seed;
+    private final Path directory;
+    private final int revealRadius;
+    private final ChunkGenerator generator; // Used by the game thread, which holds the world's lock
+    private final ChunkGenerator streamGenerator; // Used by the streaming thread only
+    private final Map<Long, WorldChunk> loaded;
+    private final Set<Long> streaming = ConcurrentHashMap.newKeySet(); // Queued for the streaming thread
+    private final ExecutorService streamer = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "world-streamer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private int playerRow = START_ROW, playerCol = START_COL;
+    private int moves;
+    private int treasuresFound;
+    private boolean finished;
+
+    public ChunkedWorld(long seed, String directory, int revealRadius, int cacheChunks, int treasuresPerChunk,
+                        int minObstaclePercent, int maxObstaclePercent) {
+        int span = 2 * STREAM_RADIUS / WorldChunk.SIZE + 2; // Most chunks the streaming window can touch across
+        if (cacheChunks < span * span) {
+            throw new IllegalArgumentException("The cache must hold at least " + span * span + " chunks");
+        }
+        this.seed = seed;
+        this.directory = Paths.get(directory, Long.toHexString(seed));
+        this.revealRadius = revealRadius;
+        this.generator = new ChunkGenerator(seed, treasuresPerChunk, minObstaclePercent, maxObstaclePercent);
+        this.streamGenerator = new ChunkGenerator(seed, treasuresPerChunk, minObstaclePercent, maxObstaclePercent);
+        this.loaded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, WorldChunk> eldest) {
+                if (size() <= cacheChunks) {
+                    return false;
+                }
+                save(eldest.getValue());
+                return true;
+            }
+        };
+        reveal();
+    }
+
+    // Method to move the player by one cell; the world has no edge, so a move is never blocked
+    public synchronized GameEngine.MoveOutcome move(int dx, int dy) {
+        if (finished) {
+            throw new IllegalStateException("The exploration is over");
+        }
+        int row = playerRow + dx;
+        int col = playerCol + dy;
+        WorldChunk chunk = chunkAt(row, col);
+        int localRow = Math.floorMod(row, WorldChunk.SIZE);
+        int localCol = Math.floorMod(col, WorldChunk.SIZE);
+        moves++;
+        if (chunk.get(localRow, localCol) == GameBoard.OBSTACLE) {
+            finished = true;
+            return GameEngine.MoveOutcome.HIT_OBSTACLE;
+        }
+        boolean treasure = chunk.get(localRow, localCol) == GameBoard.TREASURE;
+        if (treasure) {
+            chunk.set(localRow, localCol, GameBoard.EMPTY);
+            treasuresFound++;
+        }
+        playerRow = row;
+        playerCol = col;
+        reveal();
+        return treasure ? GameEngine.MoveOutcome.TREASURE : GameEngine.MoveOutcome.MOVED;
+    }
+
+    // Method to copy a square of cells and which of them have been explored, e.g. for painting, under one lock
+    public synchronized void copyWindow(int fromRow, int fromCol, int size, byte[] cells, boolean[] explored) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                int row = fromRow + r, col = fromCol + c;
+                WorldChunk chunk = chunkAt(row, col);
+                int localRow = Math.floorMod(row, WorldChunk.SIZE);
+                int localCol = Math.floorMod(col, WorldChunk.SIZE);
+                cells[r * size + c] = chunk.get(localRow, localCol);
+                explored[r * size + c] = chunk.isExplored(localRow, localCol);
+            }
+        }
+    }
+
+    public synchronized int getPlayerRow() {
+        return playerRow;
+    }
+
+    public synchronized int getPlayerCol() {
+        return playerCol;
+    }
+
+    public synchronized int getMoves() {
+        return moves;
+    }
+
+    public synchronized int getTreasuresFound() {
+        return treasuresFound;
+    }
+
+    public synchronized boolean isFinished() {
+        return finished;
+    }
+
+    public synchronized int getLoadedChunks() {
+        return loaded.size();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getRevealRadius() {
+        return revealRadius;
+    }
+
+    // Method to stop streaming and delete everything written for this world
+    public void close() {
+        streamer.shutdownNow();
+        synchronized (this) {
+            loaded.clear();
+        }
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Method to mark the cells around the player as explored and stream in the chunks it is heading towards
+    private void reveal() {
+        for (int row = playerRow - revealRadius; row <= playerRow + revealRadius; row++) {
+            for (int col = playerCol - revealRadius; col <= playerCol + revealRadius; col++) {
+                chunkAt(row, col).explore(Math.floorMod(row, WorldChunk.SIZE), Math.floorMod(col, WorldChunk.SIZE));
+            }
+        }
+        int fromChunkRow = Math.floorDiv(playerRow - STREAM_RADIUS, WorldChunk.SIZE);
+        int toChunkRow = Math.floorDiv(playerRow + STREAM_RADIUS, WorldChunk.SIZE);
+        int fromChunkCol = Math.floorDiv(playerCol - STREAM_RADIUS, WorldChunk.SIZE);
+        int toChunkCol = Math.floorDiv(playerCol + STREAM_RADIUS, WorldChunk.SIZE);
+        for (int chunkRow = fromChunkRow; chunkRow <= toChunkRow; chunkRow++) {
+            for (int chunkCol = fromChunkCol; chunkCol <= toChunkCol; chunkCol++) {
+                long key = WorldChunk.key(chunkRow, chunkCol);
+                if (!loaded.containsKey(key) && streaming.add(key)) {
+                    int r = chunkRow, c = chunkCol;
+                    streamer.execute(() -> stream(r, c, key));
+                }
+            }
+        }
+    }
+
+    // Streaming thread: load one chunk unless the game thread got to it first
+    private void stream(int chunkRow, int chunkCol, long key) {
+        synchronized (this) { // Held while reading, so an eviction can never write the same chunk at the same time
+            if (!loaded.containsKey(key)) {
+                loaded.put(key, readOrGenerate(chunkRow, chunkCol, streamGenerator));
+            }
+        }
+        streaming.remove(key);
+    }
+
+    // Method to get the chunk holding a world cell, loading it now if it is not in memory
+    private WorldChunk chunkAt(int row, int col) {
+        int chunkRow = Math.floorDiv(row, WorldChunk.SIZE);
+        int chunkCol = Math.floorDiv(col, WorldChunk.SIZE);
+        long key = WorldChunk.key(chunkRow, chunkCol);
+        WorldChunk chunk = loaded.get(key);
+        if (chunk == null) {
+            STREAM_MISSES.increment();
+            chunk = readOrGenerate(chunkRow, chunkCol, generator);
+            loaded.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    // Method to read a chunk saved on eviction, or else build it from the seed
+    private WorldChunk readOrGenerate(int chunkRow, int chunkCol, ChunkGenerator chunkGenerator) {
+        Path file = chunkFile(chunkRow, chunkCol);
+        if (Files.exists(file)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                CHUNKS_READ.increment();
+                return WorldChunk.read(in, chunkRow, chunkCol);
+            } catch (IOException e) {
+                e.printStackTrace(); // Fall back to the generated chunk; only what the player changed is lost
+            }
+        }
+        return chunkGenerator.generate(chunkRow, chunkCol);
+    }
+
+    // Method to write an evicted chunk if it differs from what the generator would build
+    private void save(WorldChunk chunk) {
+        if (!chunk.isDirty()) {
+            return;
+        }
+        Path file = chunkFile(chunk.chunkRow, chunk.chunkCol);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                chunk.write(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            CHUNKS_SAVED.increment();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Path chunkFile(int chunkRow, int chunkCol) {
+        return directory.resolve(chunkRow + "_" + chunkCol + ".chunk");
+    }
+}
@@ -0,0 +1,62 @@
+import javax.swing.*;
+import java.awt.*;
+import java.util.List;
+
+// Panel of live metrics drawn in the top-left corner of the frame's layered pane, toggled with F3.
+// It refreshes twice a second while shown and does no work at all while hidden.
+class DebugOverlay extends JComponent {
+    private static final int REFRESH_MILLIS = 500;
+    private static final int PADDING = 8;
+    private static final Color BACKGROUND = new Color(0, 0, 0, 180);
+
+    private final Timer refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+    private List<String> lines = List.of();
+
+    public DebugOverlay() {
+        setOpaque(false);
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        setVisible(false);
+    }
+
+    // Method to show or hide the panel
+    public void toggle() {
+        if (isVisible()) {
+            refreshTimer.stop();
+            setVisible(false);
+        } else {
+            setVisible(true);
+            refresh();
+            refreshTimer.start();
+        }
+    }
+
+    // Method to read the metrics again and resize to fit them
+    private void refresh() {
+        lines = Metrics.shared().summaryLines();
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = 0;
+        for (String line : lines) {
+            width = Math.max(width, metrics.stringWidth(line));
+        }
+        Rectangle old = getBounds();
+        setBounds(PADDING, PADDING, width + 2 * PADDING, lines.size() * metrics.getHeight() + 2 * PADDING);
+        if (getParent() != null) {
+            getParent().repaint(old.x, old.y, old.width, old.height); // Clear what a larger panel covered
+        }
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        g.setColor(Color.GREEN);
+        g.setFont(getFont());
+        FontMetrics metrics = g.getFontMetrics();
+        int y = PADDING + metrics.getAscent();
+        for (String line : lines) {
+            g.drawString(line, PADDING, y);
+            y += metrics.getHeight();
+        }
+    }
+}
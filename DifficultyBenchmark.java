@@ -0,0 +1,79 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+// Measures the difficulty-targeted generator: candidate boards evaluated per second for each pool size from one
+// thread up to the number of cores, and how much more alike in difficulty targeted boards are than ordinary ones.
+// Run with: java DifficultyBenchmark [rows] [cols] [seconds per run]
+public class DifficultyBenchmark {
+    private static final int COMPARED_BOARDS = 200;
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : rows;
+        double seconds = args.length > 2 ? Double.parseDouble(args[2]) : 3;
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println(rows + "x" + cols + " boards, " + cores + " cores");
+
+        List<Integer> poolSizes = new ArrayList<>();
+        for (int threads = 1; threads < cores; threads *= 2) {
+            poolSizes.add(threads);
+        }
+        poolSizes.add(cores);
+        DifficultyGenerator.Target target = null;
+        for (int threads : poolSizes) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            DifficultyGenerator generator = newGenerator(rows, cols, pool);
+            if (target == null) {
+                target = generator.typicalTarget(0, 256, 0.1);
+                System.out.println("Typical board: " + target);
+            }
+            // A negative tolerance never matches, so the search runs for the whole budget
+            DifficultyGenerator.Target unreachable = new DifficultyGenerator.Target(target.parMoves, target.chokePoints,
+                    target.treasureSpread, -1);
+            generator.generate(unreachable, 1, Integer.MAX_VALUE, (long) (seconds * 1e8)); // Warm-up
+            long start = System.nanoTime();
+            DifficultyGenerator.Result result = generator.generate(unreachable, 2, Integer.MAX_VALUE, (long) (seconds * 1e9));
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            double perSecond = result.evaluated / elapsed;
+            System.out.printf("threads=%-3d %10.0f boards/s %10.0f boards/s per thread  best distance %.3f%n",
+                    threads, perSecond, perSecond / threads, result.distance);
+            pool.shutdown();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(cores);
+        DifficultyGenerator generator = newGenerator(rows, cols, pool);
+        GameEngine engine = new GameEngine(rows, cols, new SplittableRandom(3));
+        double[] ordinary = new double[COMPARED_BOARDS];
+        double[] targeted = new double[COMPARED_BOARDS];
+        long searchNanos = 0;
+        for (int i = 0; i < COMPARED_BOARDS; i++) {
+            engine.newGame();
+            ordinary[i] = BoardDifficulty.measure(engine.getBoard()).parMoves;
+            long start = System.nanoTime();
+            targeted[i] = generator.generate(target, 1000L * i, 256, 50_000_000L).difficulty.parMoves;
+            searchNanos += System.nanoTime() - start;
+        }
+        System.out.printf("Par over %d boards: ordinary %s, targeted %s, %.2f ms per targeted board%n",
+                COMPARED_BOARDS, describe(ordinary), describe(targeted), searchNanos / 1e6 / COMPARED_BOARDS);
+        pool.shutdown();
+    }
+
+    private static DifficultyGenerator newGenerator(int rows, int cols, ForkJoinPool pool) {
+        return new DifficultyGenerator(rows, cols, GameEngine.DEFAULT_TREASURES, GameEngine.DEFAULT_MIN_OBSTACLE_PERCENT,
+                GameEngine.DEFAULT_MAX_OBSTACLE_PERCENT, pool);
+    }
+
+    private static String describe(double[] values) {
+        double mean = 0;
+        for (double value : values) {
+            mean += value / values.length;
+        }
+        double variance = 0;
+        for (double value : values) {
+            variance += (value - mean) * (value - mean) / values.length;
+        }
+        return String.format("mean %.1f sd %.1f", mean, Math.sqrt(variance));
+    }
+}
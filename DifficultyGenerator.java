@@ -0,0 +1,191 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Finds a board close to a target difficulty by generating many candidate boards in parallel and keeping the best.
+// Candidate i is the board for seed mixSeed(baseSeed + i), so the winner can be rebuilt from its seed like any
+// other board. The candidate range is split recursively over a ForkJoinPool, and each worker thread generates with
+// its own GameEngine. The search stops early once a candidate is within the target's tolerance, when the time
+// budget runs out, or after maxCandidates boards. A candidate whose cheap measures (see BoardDifficulty) are
+// already further from the target than the best board so far is dropped before its route is solved.
+class DifficultyGenerator {
+    private static final int LEAF_CANDIDATES = 16; // Candidates one task evaluates without splitting further
+    private static final LatencyHistogram SEARCH = Metrics.shared().histogram(
+            "treasure_difficulty_search_seconds", "Time to search for one board of a target difficulty");
+    private static final Metrics.Counter EVALUATED = Metrics.shared().counter(
+            "treasure_difficulty_candidates_total", "Candidate boards generated while searching for a difficulty");
+    private static final Metrics.Counter CUT_OFF = Metrics.shared().counter(
+            "treasure_difficulty_cutoffs_total", "Candidate boards dropped before their route was solved");
+
+    // Difficulty to aim for; a negative value leaves that measure free
+    static final class Target {
+        final int parMoves;
+        final int chokePoints;
+        final double treasureSpread;
+        final double tolerance; // A board at most this distance from the target ends the search
+
+        Target(int parMoves, int chokePoints, double treasureSpread, double tolerance) {
+            this.parMoves = parMoves;
+            this.chokePoints = chokePoints;
+            this.treasureSpread = treasureSpread;
+            this.tolerance = tolerance;
+        }
+
+        // Method to score how far a board is from the target: the sum of the relative differences of each measure
+        double distance(BoardDifficulty difficulty) {
+            return cheapDistance(difficulty) + relative(difficulty.parMoves, parMoves);
+        }
+
+        // Distance counting every measure but par; never more than distance(), so it can reject a board early
+        double cheapDistance(BoardDifficulty difficulty) {
+            return relative(difficulty.chokePoints, chokePoints) + relative(difficulty.treasureSpread, treasureSpread);
+        }
+
+        private static double relative(double actual, double target) {
+            return target < 0 ? 0 : Math.abs(actual - target) / Math.max(1, target);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("par=%d chokePoints=%d spread=%.1f", parMoves, chokePoints, treasureSpread);
+        }
+    }
+
+    // The best board found by one search
+    static final class Result {
+        final long seed;
+        final BoardDifficulty difficulty;
+        final double distance;
+        long evaluated; // Set once the search is over
+
+        private Result(long seed, BoardDifficulty difficulty, double distance) {
+            this.seed = seed;
+            this.difficulty = difficulty;
+            this.distance = distance;
+        }
+    }
+
+    // State shared by every task of one search
+    private static final class Search {
+        final Target target;
+        final long baseSeed;
+        final long deadlineNanos;
+        final AtomicReference<Result> best = new AtomicReference<>();
+        final LongAdder evaluated = new LongAdder();
+        volatile boolean done;
+
+        Search(Target target, long baseSeed, long deadlineNanos) {
+            this.target = target;
+            this.baseSeed = baseSeed;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    private final class Candidates extends RecursiveAction {
+        private final Search search;
+        private final int from, to;
+
+        Candidates(Search search, int from, int to) {
+            this.search = search;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_CANDIDATES) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Candidates(search, from, middle), new Candidates(search, middle, to));
+                return;
+            }
+            for (int candidate = from; candidate < to; candidate++) {
+                if (search.done || System.nanoTime() - search.deadlineNanos > 0) {
+                    search.done = true;
+                    return;
+                }
+                evaluate(search, candidate);
+            }
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final ThreadLocal<GameEngine> engines;
+
+    // Boards are generated with the given engine settings on the given pool's threads
+    public DifficultyGenerator(int rows, int cols, int treasureCount, int minObstaclePercent, int maxObstaclePercent,
+                               ForkJoinPool pool) {
+        this.pool = pool;
+        this.engines = ThreadLocal.withInitial(() -> new GameEngine(rows, cols, treasureCount, minObstaclePercent,
+                maxObstaclePercent, new SplittableRandom()));
+    }
+
+    // Method to search up to maxCandidates boards for at most budgetNanos and return the closest one to the target
+    public Result generate(Target target, long baseSeed, int maxCandidates, long budgetNanos) {
+        long start = System.nanoTime();
+        Search search = new Search(target, baseSeed, start + budgetNanos);
+        pool.invoke(new Candidates(search, 0, maxCandidates));
+        for (int candidate = 0; search.best.get() == null; candidate++) {
+            evaluate(search, candidate); // The budget ran out first; one board is still better than none
+        }
+        Result best = search.best.get();
+        best.evaluated = search.evaluated.sum();
+        SEARCH.recordSince(start);
+        return best;
+    }
+
+    // Method to pick a target at the median of each measure over a sample of ordinary boards, i.e. a typical board
+    public Target typicalTarget(long baseSeed, int samples, double tolerance) {
+        int[] par = new int[samples];
+        int[] choke = new int[samples];
+        double[] spread = new double[samples];
+        GameEngine engine = engines.get();
+        for (int i = 0; i < samples; i++) {
+            engine.newGame(seedOf(baseSeed, i));
+            BoardDifficulty difficulty = BoardDifficulty.measure(engine.getBoard());
+            par[i] = difficulty.parMoves;
+            choke[i] = difficulty.chokePoints;
+            spread[i] = difficulty.treasureSpread;
+        }
+        Arrays.sort(par);
+        Arrays.sort(choke);
+        Arrays.sort(spread);
+        return new Target(par[samples / 2], choke[samples / 2], spread[samples / 2], tolerance);
+    }
+
+    private void evaluate(Search search, int candidate) {
+        GameEngine engine = engines.get();
+        long seed = seedOf(search.baseSeed, candidate);
+        engine.newGame(seed);
+        search.evaluated.increment();
+        EVALUATED.increment();
+        BoardDifficulty cheap = BoardDifficulty.measureCheap(engine.getBoard());
+        Result best = search.best.get();
+        if (best != null && search.target.cheapDistance(cheap) >= best.distance) {
+            CUT_OFF.increment();
+            return;
+        }
+        int par = RouteSolver.shortestTour(engine.getBoard());
+        if (par < 0) {
+            return; // A treasure cannot be reached
+        }
+        BoardDifficulty difficulty = cheap.withPar(par);
+        Result result = new Result(seed, difficulty, search.target.distance(difficulty));
+        while (best == null || result.distance < best.distance) {
+            if (search.best.compareAndSet(best, result)) {
+                if (result.distance <= search.target.tolerance) {
+                    search.done = true;
+                }
+                return;
+            }
+            best = search.best.get();
+        }
+    }
+
+    private static long seedOf(long baseSeed, int candidate) {
+        long seed = GameEngine.mixSeed(baseSeed + candidate);
+        return seed != GameEngine.NO_SEED ? seed : 1;
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.Arrays;
+
+// Game board stored as a single flat byte array in row-major order, one byte per cell.
+// Cells are addressed by index (row * cols + col) so hot loops can walk the board without nested arrays.
+class GameBoard {
+    // Cell codes
+    public static final byte EMPTY = 0;
+    public static final byte PLAYER = 1;
+    public static final byte TREASURE = 2;
+    public static final byte OBSTACLE = 3;
+
+    private final int rows;
+    private final int cols;
+    private final byte[] cells;
+
+    public GameBoard(int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid board size: " + rows + "x" + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.cells = new byte[rows * cols];
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    // Total number of cells on the board
+    public int size() {
+        return cells.length;
+    }
+
+    public int index(int row, int col) {
+        return row * cols + col;
+    }
+
+    public int rowOf(int index) {
+        return index / cols;
+    }
+
+    public int colOf(int index) {
+        return index % cols;
+    }
+
+    public boolean inBounds(int row, int col) {
+        return row >= 0 && row < rows && col >= 0 && col < cols;
+    }
+
+    public byte get(int index) {
+        return cells[index];
+    }
+
+    public byte get(int row, int col) {
+        return cells[row * cols + col];
+    }
+
+    public void set(int index, byte value) {
+        cells[index] = value;
+    }
+
+    // Method to reset every cell to empty
+    public void clear() {
+        Arrays.fill(cells, EMPTY);
+    }
+
+    public byte[] copyCells() {
+        return cells.clone();
+    }
+
+    // Method to overwrite every cell from a copy taken from a board of the same size
+    public void setCells(byte[] source) {
+        if (source.length != cells.length) {
+            throw new IllegalArgumentException("Expected " + cells.length + " cells, got " + source.length);
+        }
+        System.arraycopy(source, 0, cells, 0, cells.length);
+    }
+
+    // Method to hash the layout (64-bit FNV-1a over the size and every cell), used to recognise a repeated board
+    public long contentHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ rows) * 0x100000001b3L;
+        hash = (hash ^ cols) * 0x100000001b3L;
+        for (byte cell : cells) {
+            hash = (hash ^ cell) * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
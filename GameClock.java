@@ -0,0 +1,79 @@
+// Game timer on the monotonic System.nanoTime clock, so changes to the wall clock cannot move it.
+// Time spent paused is accumulated separately and left out of the elapsed time. Not thread-safe: used on the EDT, or by
+// GameServer while holding the session's lock.
+class GameClock {
+    private boolean started, paused, stopped;
+    private long startNanos;
+    private long pausedSinceNanos;
+    private long pausedTotalNanos;
+    private long stoppedAtNanos;
+    private long carriedNanos; // Time played before the game was saved, for a resumed game
+
+    // Method to clear the clock for a new game
+    public void reset() {
+        reset(0);
+    }
+
+    // Method to clear the clock for a game that had already run for the given time, e.g. one resumed from a save;
+    // the time counts on from there once the clock starts
+    public void reset(long carriedNanos) {
+        started = paused = stopped = false;
+        pausedTotalNanos = 0;
+        this.carriedNanos = carriedNanos;
+    }
+
+    public void start() {
+        started = true;
+        paused = stopped = false;
+        pausedTotalNanos = 0;
+        startNanos = System.nanoTime();
+    }
+
+    public void pause() {
+        if (isRunning()) {
+            paused = true;
+            pausedSinceNanos = System.nanoTime();
+        }
+    }
+
+    public void resume() {
+        if (paused && !stopped) {
+            paused = false;
+            pausedTotalNanos += System.nanoTime() - pausedSinceNanos;
+        }
+    }
+
+    public void stop() {
+        if (started && !stopped) {
+            resume();
+            stopped = true;
+            stoppedAtNanos = System.nanoTime();
+        }
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public boolean isRunning() {
+        return started && !paused && !stopped;
+    }
+
+    // Time the clock has been running, not counting pauses
+    public long elapsedNanos() {
+        if (!started) {
+            return carriedNanos;
+        }
+        long end = stopped ? stoppedAtNanos : paused ? pausedSinceNanos : System.nanoTime();
+        return carriedNanos + end - startNanos - pausedTotalNanos;
+    }
+
+    public long elapsedMillis() {
+        return elapsedNanos() / 1_000_000;
+    }
+
+    // Method to format milliseconds as seconds with three decimals, e.g. 12.034
+    public static String format(long millis) {
+        return String.format("%d.%03d", millis / 1000, millis % 1000);
+    }
+}
@@ -0,0 +1,293 @@
+import java.util.SplittableRandom;
+
+// Game rules without any UI: board generation, movement, treasure collection and win/lose detection.
+// The Swing frame and the headless simulation runner both drive the game through move(), which reports what
+// happened as a MoveOutcome instead of showing dialogs.
+// Every board is generated from a 64-bit seed, so the same seed and settings always give the same board.
+class GameEngine {
+    public static final int DEFAULT_TREASURES = 7;
+    public static final int DEFAULT_MIN_OBSTACLE_PERCENT = 15;
+    public static final int DEFAULT_MAX_OBSTACLE_PERCENT = 29;
+    public static final long NO_SEED = 0; // Never used for a board, so it can mark a score whose board is unknown
+    private static final LatencyHistogram GENERATION = Metrics.shared().histogram(
+            "treasure_board_generation_seconds", "Time to generate one board");
+    private static final Metrics.Counter OBSTACLE_RETRIES = Metrics.shared().counter(
+            "treasure_obstacle_retries_total", "Obstacle placements rejected because they would cut off part of the board");
+    private static final Metrics.Counter REACHABILITY_SEARCHES = Metrics.shared().counter(
+            "treasure_reachability_searches_total", "Fallback searches run by the reachability engine");
+
+    // Result of a single move
+    enum MoveOutcome {
+        BLOCKED,      // The move would leave the grid; nothing changed
+        MOVED,        // Moved onto an empty cell
+        TREASURE,     // Moved onto a treasure and collected it
+        HIT_OBSTACLE, // Walked into an obstacle; the game is lost
+        WON           // Collected the last treasure
+    }
+
+    // A generated board that can be loaded into an engine with the same settings without generating it again
+    static final class Layout {
+        final long seed;
+        final byte[] cells;
+        final int playerX, playerY;
+        final int obstacleCount;
+
+        private Layout(long seed, byte[] cells, int playerX, int playerY, int obstacleCount) {
+            this.seed = seed;
+            this.cells = cells;
+            this.playerX = playerX;
+            this.playerY = playerY;
+            this.obstacleCount = obstacleCount;
+        }
+    }
+
+    private final GameBoard board;
+    private final ReachabilityEngine reachability; // Null, like emptyCells, for an engine made by forBoard()
+    private final int[] emptyCells;
+    private final int treasureCount;
+    private final int minObstaclePercent;
+    private final int maxObstaclePercent;
+    private final SplittableRandom seeds; // Picks the seed of each new game
+    private SplittableRandom random;
+    private long seed;
+    private int playerX, playerY;
+    private int moves;
+    private int treasuresRemaining;
+    private int obstacleCount;
+    private boolean finished;
+
+    public GameEngine(int rows, int cols, SplittableRandom seeds) {
+        this(rows, cols, DEFAULT_TREASURES, DEFAULT_MIN_OBSTACLE_PERCENT, DEFAULT_MAX_OBSTACLE_PERCENT, seeds);
+    }
+
+    // Obstacles cover between minObstaclePercent and maxObstaclePercent of the board, inclusive
+    public GameEngine(int rows, int cols, int treasureCount, int minObstaclePercent, int maxObstaclePercent, SplittableRandom seeds) {
+        this(rows, cols, treasureCount, minObstaclePercent, maxObstaclePercent, seeds, true);
+        newGame();
+    }
+
+    private GameEngine(int rows, int cols, int treasureCount, int minObstaclePercent, int maxObstaclePercent,
+                       SplittableRandom seeds, boolean generates) {
+        if (minObstaclePercent < 0 || maxObstaclePercent < minObstaclePercent || maxObstaclePercent >= 100) {
+            throw new IllegalArgumentException("Invalid obstacle range: " + minObstaclePercent + "-" + maxObstaclePercent + "%");
+        }
+        this.board = new GameBoard(rows, cols);
+        this.reachability = generates ? new ReachabilityEngine(board) : null;
+        this.emptyCells = generates ? new int[board.size()] : null;
+        this.treasureCount = Math.min(treasureCount, board.size() - 1);
+        this.minObstaclePercent = minObstaclePercent;
+        this.maxObstaclePercent = maxObstaclePercent;
+        this.seeds = seeds;
+    }
+
+    // Method to create an engine that plays one board generated elsewhere with the same settings, e.g. by a
+    // BoardPool. It has no generation buffers, so it takes only the memory of the board, and newGame() throws
+    public static GameEngine forBoard(int rows, int cols, int treasureCount, int minObstaclePercent,
+                                      int maxObstaclePercent, Layout layout) {
+        GameEngine engine = new GameEngine(rows, cols, treasureCount, minObstaclePercent, maxObstaclePercent, null,
+                false);
+        engine.load(layout);
+        return engine;
+    }
+
+    // Method to generate a fresh board from the next seed and reset the score
+    public void newGame() {
+        requireGenerator();
+        long next;
+        do {
+            next = seeds.nextLong();
+        } while (next == NO_SEED);
+        newGame(next);
+    }
+
+    // Method to generate the board for a given seed and reset the score
+    public void newGame(long seed) {
+        requireGenerator();
+        long start = System.nanoTime();
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+        moves = 0;
+        finished = false;
+        board.clear();
+        placePlayer();
+        placeTreasuresAndObstacles();
+        GENERATION.recordSince(start);
+        REACHABILITY_SEARCHES.add(reachability.takeSearchCount());
+    }
+
+    // SplitMix64 finalizer: turns related inputs, such as consecutive numbers or neighbouring coordinates, into
+    // unrelated seeds
+    static long mixSeed(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // Method to copy the current board so it can be loaded later, e.g. by a pre-generated board pool
+    public Layout getLayout() {
+        return new Layout(seed, board.copyCells(), playerX, playerY, obstacleCount);
+    }
+
+    // Method to start a game on a board generated earlier by an engine with the same settings
+    public void load(Layout layout) {
+        board.setCells(layout.cells);
+        seed = layout.seed;
+        playerX = layout.playerX;
+        playerY = layout.playerY;
+        obstacleCount = layout.obstacleCount;
+        treasuresRemaining = treasureCount;
+        moves = 0;
+        finished = false;
+    }
+
+    // Method to continue a saved game on an engine with the same settings: the board as it was left, with the moves
+    // made so far and the treasures still to be found
+    public void restore(long seed, byte[] cells, int playerX, int playerY, int obstacleCount, int moves,
+                        int treasuresRemaining) {
+        if (cells.length != board.size() || !board.inBounds(playerX, playerY)
+                || cells[board.index(playerX, playerY)] != GameBoard.PLAYER
+                || treasuresRemaining <= 0 || treasuresRemaining > treasureCount || moves < 0) {
+            throw new IllegalArgumentException("Not a game in progress on a " + board.getRows() + "x" + board.getCols() + " board");
+        }
+        board.setCells(cells);
+        this.seed = seed;
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.moves = moves;
+        this.treasuresRemaining = treasuresRemaining;
+        this.obstacleCount = obstacleCount;
+        finished = false;
+    }
+
+    // Method to move the player by one cell and report what happened
+    public MoveOutcome move(int dx, int dy) {
+        if (finished) {
+            throw new IllegalStateException("The game is over");
+        }
+        int newX = playerX + dx;
+        int newY = playerY + dy;
+
+        if (!board.inBounds(newX, newY)) {
+            return MoveOutcome.BLOCKED;
+        }
+        int target = board.index(newX, newY);
+        if (board.get(target) == GameBoard.OBSTACLE) {
+            finished = true;
+            return MoveOutcome.HIT_OBSTACLE;
+        }
+
+        board.set(board.index(playerX, playerY), GameBoard.EMPTY);
+        playerX = newX;
+        playerY = newY;
+        boolean treasure = board.get(target) == GameBoard.TREASURE;
+        board.set(target, GameBoard.PLAYER);
+        moves++;
+
+        if (!treasure) {
+            return MoveOutcome.MOVED;
+        }
+        if (--treasuresRemaining == 0) {
+            finished = true;
+            return MoveOutcome.WON;
+        }
+        return MoveOutcome.TREASURE;
+    }
+
+    public GameBoard getBoard() {
+        return board;
+    }
+
+    public int getPlayerX() {
+        return playerX;
+    }
+
+    public int getPlayerY() {
+        return playerY;
+    }
+
+    public int getTreasureCount() {
+        return treasureCount;
+    }
+
+    public int getMinObstaclePercent() {
+        return minObstaclePercent;
+    }
+
+    public int getMaxObstaclePercent() {
+        return maxObstaclePercent;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public int getTreasuresRemaining() {
+        return treasuresRemaining;
+    }
+
+    public int getObstacleCount() {
+        return obstacleCount;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private void requireGenerator() {
+        if (reachability == null) {
+            throw new IllegalStateException("This engine only plays the board it was created with");
+        }
+    }
+
+    // Method to place the player on the grid
+    private void placePlayer() {
+        playerX = random.nextInt(board.getRows());
+        playerY = random.nextInt(board.getCols());
+        board.set(board.index(playerX, playerY), GameBoard.PLAYER);
+    }
+
+    // Method to place treasures, then obstacles, on cells drawn without replacement from the free cells
+    private void placeTreasuresAndObstacles() {
+        // Collect all empty cells
+        int emptyCount = 0;
+        for (int cell = 0; cell < board.size(); cell++) {
+            if (board.get(cell) == GameBoard.EMPTY) {
+                emptyCells[emptyCount++] = cell;
+            }
+        }
+
+        // Partial Fisher-Yates shuffle: every draw lands on a free cell, so there is no rejection sampling
+        treasuresRemaining = treasureCount;
+        for (int placed = 0; placed < treasureCount; placed++) {
+            int pick = random.nextInt(emptyCount);
+            board.set(emptyCells[pick], GameBoard.TREASURE);
+            emptyCells[pick] = emptyCells[--emptyCount];
+        }
+
+        // 15-29% of the board by default, which is 15 to 29 obstacles on the 10x10 grid
+        int minObstacles = board.size() * minObstaclePercent / 100;
+        int spread = board.size() * (maxObstaclePercent - minObstaclePercent + 1) / 100;
+        int obstacles = minObstacles + random.nextInt(Math.max(1, spread));
+
+        obstacleCount = 0;
+        int retries = 0;
+        while (obstacles > 0 && emptyCount > 0) {
+            int pick = random.nextInt(emptyCount);
+            int cell = emptyCells[pick];
+            emptyCells[pick] = emptyCells[--emptyCount]; // Swap-remove so each draw is constant time
+
+            // Only keep the obstacle if every treasure can still be reached
+            if (reachability.tryPlaceObstacle(cell)) {
+                obstacles--;
+                obstacleCount++;
+            } else {
+                retries++;
+            }
+        }
+        OBSTACLE_RETRIES.add(retries);
+    }
+}
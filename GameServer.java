@@ -0,0 +1,322 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.*;
+
+// Hosts many Treasure Hunt games in one JVM over plain HTTP, with the same GameEngine, par moves, move logs and
+// high score store as the Swing game. The server owns each board and its clock, so clients only send moves.
+//
+//   POST   /games                       start a game          -> id=... seed=... par=... rows=... cols=... view=...
+//   POST   /games/{id}/move?dir=U|D|L|R move the player       -> outcome=... x=... y=... moves=... treasures=... view=...
+//   POST   /games/{id}/score?name=...   save a won game to the shared leaderboard
+//   DELETE /games/{id}                  end a game
+//   GET    /leaderboard?page=0&size=10  one page of the ranked scores, one per line: rank name time moves par
+//   GET    /metrics                     all metrics in the Prometheus text format
+//
+// view is the player's reveal window read row by row: . empty, P player, T treasure, X obstacle, # off the board.
+// Sessions live in a ConcurrentHashMap, whose lock-free reads and per-bin locking let requests for different games
+// run in parallel; a game is only locked by its own requests. Games idle for SESSION_IDLE_MINUTES are dropped.
+// Boards come from a BoardPool of typical difficulty, like the Swing game's, so scores on the shared leaderboard are
+// comparable; when games start faster than the pool can search, requests get plain boards instead. Each session's
+// engine only holds its board, without the buffers used to generate one.
+// Run with: java GameServer [port] [rows] [cols]
+public class GameServer {
+    private static final int SESSION_IDLE_MINUTES = 5;
+    private static final int REVEAL_RADIUS = 1;
+    private static final int LEADERBOARD_DEFAULT = 10;
+    private static final int POOLED_BOARDS = 64;
+    private static final LatencyHistogram REQUESTS = Metrics.shared().histogram(
+            "treasure_server_request_seconds", "Time to handle one game server request");
+    private static final Metrics.Counter GAMES_STARTED = Metrics.shared().counter(
+            "treasure_server_games_started_total", "Games started on the server");
+    private static final Metrics.Counter GAMES_EXPIRED = Metrics.shared().counter(
+            "treasure_server_games_expired_total", "Games dropped after being idle");
+
+    // One player's game; only touched while holding its own lock
+    private static final class Session {
+        final GameEngine engine;
+        final GameClock clock = new GameClock();
+        final MoveLog log;
+        final int parMoves;
+        volatile long lastActiveNanos = System.nanoTime();
+        boolean scoreSaved;
+
+        Session(GameEngine engine, int parMoves) {
+            this.engine = engine;
+            this.parMoves = parMoves;
+            this.log = new MoveLog(engine);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Leaderboard leaderboard;
+    private final RouteSolver routeSolver = new RouteSolver(4096);
+    private final BoardPool boardPool;
+    private final int rows, cols;
+    private HttpServer server;
+    private ExecutorService executor;
+    private ScheduledExecutorService sweeper;
+
+    public GameServer(int rows, int cols, Leaderboard leaderboard) {
+        this.rows = rows;
+        this.cols = cols;
+        this.leaderboard = leaderboard;
+        this.boardPool = new BoardPool(rows, cols, GameEngine.DEFAULT_TREASURES,
+                GameEngine.DEFAULT_MIN_OBSTACLE_PERCENT, GameEngine.DEFAULT_MAX_OBSTACLE_PERCENT,
+                new SplittableRandom(), POOLED_BOARDS, routeSolver);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : rows;
+        HighScoreStore store = new HighScoreStore("src/ICS4U/FinalProject/server-highscores");
+        store.load();
+        Leaderboard leaderboard = new Leaderboard(store);
+        leaderboard.refresh();
+        GameServer gameServer = new GameServer(rows, cols, leaderboard);
+        gameServer.start(port);
+        System.out.println("Treasure Hunt server on port " + port + " (" + rows + "x" + cols + " boards)");
+    }
+
+    // Method to start listening; requests run on the executor from newRequestExecutor()
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 4096);
+        server.createContext("/games", this::handleGames);
+        server.createContext("/leaderboard", this::handleLeaderboard);
+        server.createContext("/metrics", this::handleMetrics);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        boardPool.matchTypicalDifficulty(Runtime.getRuntime().availableProcessors());
+        boardPool.start();
+        server.start();
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::dropIdleSessions, 1, 1, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        sweeper.shutdownNow();
+        boardPool.stop();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    // Method to pick one virtual thread per request where the JDK has them (Java 21+), or else a pool of platform
+    // threads sized for requests that spend most of their time on the CPU
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+            return Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "game-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handleGames(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/"); // "", "games", id, action
+            String method = exchange.getRequestMethod();
+            if (path.length == 2 && method.equals("POST")) {
+                reply(exchange, 200, newGame());
+                return;
+            }
+            Session session = path.length >= 3 ? sessions.get(path[2]) : null;
+            if (session == null) {
+                reply(exchange, 404, "error=no such game");
+                return;
+            }
+            session.lastActiveNanos = System.nanoTime();
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (path.length == 3 && method.equals("DELETE")) {
+                sessions.remove(path[2]);
+                reply(exchange, 200, "ended=" + path[2]);
+            } else if (path.length == 4 && path[3].equals("move") && method.equals("POST")) {
+                reply(exchange, 200, move(session, query.getOrDefault("dir", "")));
+            } else if (path.length == 4 && path[3].equals("score") && method.equals("POST")) {
+                saveScore(exchange, session, query.getOrDefault("name", "").trim());
+            } else {
+                reply(exchange, 400, "error=unknown request");
+            }
+        } finally {
+            REQUESTS.recordSince(start);
+        }
+    }
+
+    // Method to create a session with a fresh board and return its id and first view
+    private String newGame() {
+        BoardPool.Board next = boardPool.take();
+        GameEngine engine = GameEngine.forBoard(rows, cols, GameEngine.DEFAULT_TREASURES,
+                GameEngine.DEFAULT_MIN_OBSTACLE_PERCENT, GameEngine.DEFAULT_MAX_OBSTACLE_PERCENT, next.layout);
+        Session session = new Session(engine, next.parMoves);
+        String id;
+        do {
+            id = Long.toHexString(ThreadLocalRandom.current().nextLong()); // Hard to guess, so games cannot be hijacked
+        } while (sessions.putIfAbsent(id, session) != null);
+        GAMES_STARTED.increment();
+        synchronized (session) {
+            return "id=" + id + " seed=" + engine.getSeed() + " par=" + session.parMoves + " rows=" + rows
+                    + " cols=" + cols + " view=" + view(engine);
+        }
+    }
+
+    private String move(Session session, String direction) {
+        int dx = 0, dy = 0;
+        switch (direction) {
+            case "U" -> dx = -1;
+            case "D" -> dx = 1;
+            case "L" -> dy = -1;
+            case "R" -> dy = 1;
+            default -> {
+                return "error=dir must be U, D, L or R";
+            }
+        }
+        synchronized (session) {
+            GameEngine engine = session.engine;
+            if (engine.isFinished()) {
+                return "error=game over";
+            }
+            if (!session.clock.isStarted()) {
+                session.clock.start(); // Like the Swing game, the clock starts with the first move
+            }
+            GameEngine.MoveOutcome outcome = engine.move(dx, dy);
+            if (outcome != GameEngine.MoveOutcome.BLOCKED) {
+                session.log.record(dx, dy, session.clock.elapsedMillis());
+            }
+            if (engine.isFinished()) {
+                session.clock.stop();
+            }
+            return "outcome=" + outcome + " x=" + engine.getPlayerX() + " y=" + engine.getPlayerY()
+                    + " moves=" + engine.getMoves() + " treasures=" + engine.getTreasuresRemaining()
+                    + " time=" + session.clock.elapsedMillis() + " view=" + view(engine);
+        }
+    }
+
+    private void saveScore(HttpExchange exchange, Session session, String name) throws IOException {
+        if (name.length() > HighScore.MAX_NAME_LENGTH) {
+            reply(exchange, 400, "error=name must be at most " + HighScore.MAX_NAME_LENGTH + " characters");
+            return;
+        }
+        HighScore score;
+        synchronized (session) {
+            if (session.engine.getTreasuresRemaining() > 0 || session.scoreSaved || name.isEmpty()) {
+                reply(exchange, 409, "error=only a won game can be saved, once, with a name");
+                return;
+            }
+            session.scoreSaved = true;
+            score = new HighScore(name, (int) session.clock.elapsedMillis(), session.engine.getMoves(),
+                    session.parMoves, session.engine.getSeed());
+        }
+        int rank = leaderboard.add(score); // The store's writer thread batches scores from every session to disk
+        reply(exchange, 200, "saved=" + name + " time=" + score.getTimeMillis() + " moves=" + score.getMoves()
+                + " rank=" + rank);
+    }
+
+    private void handleLeaderboard(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            int page = Math.max(0, Integer.parseInt(query.getOrDefault("page", "0")));
+            int size = Math.max(1, Math.min(1000, Integer.parseInt(query.getOrDefault("size", String.valueOf(LEADERBOARD_DEFAULT)))));
+            StringBuilder body = new StringBuilder();
+            long rank = (long) page * size + 1;
+            for (HighScore score : leaderboard.page(page, size)) {
+                body.append(rank++).append(' ').append(score.getName()).append(' ').append(score.getTimeMillis())
+                        .append(' ').append(score.getMoves()).append(' ').append(score.getParMoves()).append('\n');
+            }
+            reply(exchange, 200, body.toString());
+        } catch (NumberFormatException e) {
+            reply(exchange, 400, "error=page and size must be numbers");
+        } finally {
+            REQUESTS.recordSince(start);
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        StringWriter body = new StringWriter();
+        Metrics.shared().writePrometheus(body);
+        body.append("# HELP treasure_server_sessions Games currently open on the server\n")
+                .append("# TYPE treasure_server_sessions gauge\n")
+                .append("treasure_server_sessions ").append(String.valueOf(sessions.size())).append('\n');
+        reply(exchange, 200, body.toString());
+    }
+
+    // Method to remove games nobody has touched for a while
+    private void dropIdleSessions() {
+        long cutoff = System.nanoTime() - TimeUnit.MINUTES.toNanos(SESSION_IDLE_MINUTES);
+        sessions.entrySet().removeIf(entry -> {
+            boolean idle = entry.getValue().lastActiveNanos < cutoff;
+            if (idle) {
+                GAMES_EXPIRED.increment();
+            }
+            return idle;
+        });
+    }
+
+    // Method to describe the cells around the player
+    private static String view(GameEngine engine) {
+        GameBoard board = engine.getBoard();
+        StringBuilder view = new StringBuilder((2 * REVEAL_RADIUS + 1) * (2 * REVEAL_RADIUS + 1));
+        for (int x = engine.getPlayerX() - REVEAL_RADIUS; x <= engine.getPlayerX() + REVEAL_RADIUS; x++) {
+            for (int y = engine.getPlayerY() - REVEAL_RADIUS; y <= engine.getPlayerY() + REVEAL_RADIUS; y++) {
+                if (!board.inBounds(x, y)) {
+                    view.append('#');
+                } else {
+                    view.append(switch (board.get(x, y)) {
+                        case GameBoard.PLAYER -> 'P';
+                        case GameBoard.TREASURE -> 'T';
+                        case GameBoard.OBSTACLE -> 'X';
+                        default -> '.';
+                    });
+                }
+            }
+        }
+        return view.toString();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, equals), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
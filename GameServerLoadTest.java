@@ -0,0 +1,198 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load generator for GameServer. It opens a number of games, then keeps every one of them alive by playing them
+// round-robin: a fixed number of request lanes each take the next game off a queue, send one move, and put the game
+// back. Players never step on an obstacle they can see, collect any treasure next to them, and save the score and
+// start a new game when they win, so the open game count stays constant for the whole run.
+// Run with: java GameServerLoadTest [url] [games] [seconds] [lanes]
+// e.g. java GameServerLoadTest http://localhost:8080 20000 30 64
+public class GameServerLoadTest {
+    // View indexes of the cells next to the player, in the order of DIRECTIONS
+    private static final int[] NEIGHBOURS = {1, 7, 3, 5};
+    private static final String[] DIRECTIONS = {"U", "D", "L", "R"};
+
+    private static final class Player {
+        final int number;
+        String gameId;
+        String view;
+
+        Player(int number) {
+            this.number = number;
+        }
+    }
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String baseUrl;
+    private final ConcurrentLinkedQueue<Player> waiting = new ConcurrentLinkedQueue<>();
+    private volatile LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong wins = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile long deadlineNanos;
+
+    public GameServerLoadTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080";
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        int lanes = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+        new GameServerLoadTest(url).run(games, seconds, lanes);
+    }
+
+    public void run(int games, int seconds, int lanes) throws Exception {
+        for (int i = 0; i < games; i++) {
+            waiting.add(new Player(i));
+        }
+        long start = System.nanoTime();
+        deadlineNanos = Long.MAX_VALUE;
+        runLanes(lanes, true); // Open every game once
+        System.out.printf("Opened %d games in %.1f s%n", games, (System.nanoTime() - start) / 1e9);
+
+        resetStats();
+        start = System.nanoTime();
+        deadlineNanos = start + seconds * 1_000_000_000L;
+        runLanes(lanes, false);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d requests in %.1f s: %.0f requests/s, %d games won, %d errors%n",
+                requests.get(), elapsed, requests.get() / elapsed, wins.get(), errors.get());
+        System.out.printf("Latency p50=%.2f ms p99=%.2f ms max=%.2f ms%n", latency.percentile(50) / 1e6,
+                latency.percentile(99) / 1e6, latency.getMaxNanos() / 1e6);
+        String metrics = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString()).body();
+        for (String line : metrics.split("\n")) {
+            if (line.startsWith("treasure_server_sessions ")) {
+                System.out.println("Games open on the server: " + line.substring(line.indexOf(' ') + 1));
+            }
+        }
+    }
+
+    private void resetStats() {
+        latency = new LatencyHistogram();
+        requests.set(0);
+        wins.set(0);
+        errors.set(0);
+    }
+
+    // Method to run the lanes until the deadline passes, or, when opening, until every player has a game
+    private void runLanes(int lanes, boolean opening) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(lanes);
+        ConcurrentLinkedQueue<Player> opened = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < lanes; i++) {
+            nextRequest(done, opening ? opened : null);
+        }
+        done.await();
+        if (opening) {
+            waiting.addAll(opened);
+        }
+    }
+
+    private void nextRequest(CountDownLatch done, ConcurrentLinkedQueue<Player> opened) {
+        Player player = waiting.poll();
+        if (player == null || System.nanoTime() > deadlineNanos) {
+            if (player != null) {
+                waiting.add(player);
+            }
+            done.countDown();
+            return;
+        }
+        CompletableFuture<Void> request = opened != null ? open(player) : play(player);
+        request.whenComplete((ignored, failure) -> {
+            if (failure != null) {
+                errors.incrementAndGet();
+                player.gameId = null; // Start over with a new game
+            }
+            (opened != null ? opened : waiting).add(player);
+            nextRequest(done, opened);
+        });
+    }
+
+    // Method to send the request that best moves this player's game along
+    private CompletableFuture<Void> play(Player player) {
+        if (player.gameId == null) {
+            return open(player);
+        }
+        int choice = chooseMove(player.view);
+        if (choice < 0) { // Boxed in by obstacles, so give up on this game
+            String gameId = player.gameId;
+            player.gameId = null;
+            return send("DELETE", "/games/" + gameId).thenApply(fields -> null);
+        }
+        return send("POST", "/games/" + player.gameId + "/move?dir=" + DIRECTIONS[choice]).thenCompose(fields -> {
+            player.view = fields.get("view");
+            String outcome = fields.getOrDefault("outcome", "");
+            if (outcome.equals("WON")) {
+                wins.incrementAndGet();
+                String gameId = player.gameId;
+                player.gameId = null;
+                return send("POST", "/games/" + gameId + "/score?name=load-" + player.number)
+                        .thenCompose(saved -> send("DELETE", "/games/" + gameId))
+                        .thenApply(ended -> null);
+            }
+            if (!fields.containsKey("outcome") || outcome.equals("HIT_OBSTACLE")) {
+                player.gameId = null;
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    private CompletableFuture<Void> open(Player player) {
+        return send("POST", "/games").thenAccept(fields -> {
+            player.gameId = fields.get("id");
+            player.view = fields.get("view");
+        });
+    }
+
+    // Method to pick a direction: a treasure if one is next to the player, otherwise any empty cell
+    private static int chooseMove(String view) {
+        int[] safe = new int[NEIGHBOURS.length];
+        int safeCount = 0;
+        for (int i = 0; i < NEIGHBOURS.length; i++) {
+            char cell = view.charAt(NEIGHBOURS[i]);
+            if (cell == 'T') {
+                return i;
+            }
+            if (cell == '.') {
+                safe[safeCount++] = i;
+            }
+        }
+        return safeCount == 0 ? -1 : safe[ThreadLocalRandom.current().nextInt(safeCount)];
+    }
+
+    private CompletableFuture<Map<String, String>> send(String method, String path) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+        long start = System.nanoTime();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).thenApply(response -> {
+            latency.recordSince(start);
+            requests.incrementAndGet();
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException(method + " " + path + " -> " + response.body());
+            }
+            return parseFields(response.body());
+        });
+    }
+
+    private static Map<String, String> parseFields(String body) {
+        Map<String, String> fields = new HashMap<>();
+        for (String field : body.trim().split(" ")) {
+            int equals = field.indexOf('=');
+            if (equals > 0) {
+                fields.put(field.substring(0, equals), field.substring(equals + 1));
+            }
+        }
+        return fields;
+    }
+}
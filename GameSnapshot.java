@@ -0,0 +1,217 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// A game in progress, saved so it can be resumed after the window is closed: the board, the player's position and
+// progress, the time played and the move log. Taken on the EDT with capture(), which only copies the cells and the
+// log, then encoded and written on another thread.
+//
+// File format, big-endian, written through a FileChannel in one buffer:
+//   header (32 bytes): magic "THGS", version, body length, CRC32 of the body, reserved
+//   body: rows, cols, seed, player row and column, obstacle count, moves, treasures remaining, par, elapsed
+//         milliseconds and 8 reserved bytes, then the grid packed 2 bits per cell (4 cells to a byte, in index
+//         order), then the length of the serialized move log and the log itself, which also holds the engine settings
+// A default 10x10 game takes under 200 bytes and a 1000x1000 board about 250 KB. The file is written to a temp file,
+// synced and renamed over the old one, so a crash leaves either the previous save or the new one.
+class GameSnapshot {
+    static final int MAGIC = 0x54484753; // "THGS"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    private static final int FIXED_BODY_BYTES = 3 * 8 + 8 * 4; // Every body field before the grid
+    private static final LatencyHistogram WRITE = Metrics.shared().histogram(
+            "treasure_snapshot_write_seconds", "Time to encode and write one saved game");
+    private static final LatencyHistogram READ = Metrics.shared().histogram(
+            "treasure_snapshot_read_seconds", "Time to read and decode one saved game");
+    private static final int[] UNPACKED = new int[256]; // Packed byte -> its 4 cells as one little-endian int
+
+    static {
+        for (int packed = 0; packed < 256; packed++) {
+            for (int cell = 0; cell < 4; cell++) {
+                UNPACKED[packed] |= (packed >> (2 * cell) & 3) << (8 * cell);
+            }
+        }
+    }
+
+    final int rows, cols;
+    final long seed;
+    final int playerX, playerY;
+    final int obstacleCount;
+    final int moves;
+    final int treasuresRemaining;
+    final int parMoves;
+    final long elapsedMillis;
+    final byte[] cells;
+    final MoveLog moveLog;
+
+    private GameSnapshot(int rows, int cols, long seed, int playerX, int playerY, int obstacleCount, int moves,
+                         int treasuresRemaining, int parMoves, long elapsedMillis, byte[] cells, MoveLog moveLog) {
+        this.rows = rows;
+        this.cols = cols;
+        this.seed = seed;
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.obstacleCount = obstacleCount;
+        this.moves = moves;
+        this.treasuresRemaining = treasuresRemaining;
+        this.parMoves = parMoves;
+        this.elapsedMillis = elapsedMillis;
+        this.cells = cells;
+        this.moveLog = moveLog;
+    }
+
+    // Method to copy the engine's game so far; the copy can be written while the game goes on
+    public static GameSnapshot capture(GameEngine engine, int parMoves, long elapsedMillis, MoveLog moveLog) {
+        GameBoard board = engine.getBoard();
+        return new GameSnapshot(board.getRows(), board.getCols(), engine.getSeed(), engine.getPlayerX(),
+                engine.getPlayerY(), engine.getObstacleCount(), engine.getMoves(), engine.getTreasuresRemaining(),
+                parMoves, elapsedMillis, board.copyCells(), moveLog.copy());
+    }
+
+    // Method to continue this game on the engine; returns false if the engine has different settings
+    public boolean restoreInto(GameEngine engine) {
+        if (!moveLog.matches(engine)) {
+            return false;
+        }
+        engine.restore(seed, cells, playerX, playerY, obstacleCount, moves, treasuresRemaining);
+        return true;
+    }
+
+    // Method to write the snapshot, replacing any earlier one only once the new file is complete
+    public void write(Path file) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer buffer = encode();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        WRITE.recordSince(start);
+    }
+
+    public static GameSnapshot read(Path file) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a saved game: " + file);
+            }
+            buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // Keep reading until the whole file is in the buffer
+            }
+        }
+        buffer.flip();
+        GameSnapshot snapshot = decode(buffer, file);
+        READ.recordSince(start);
+        return snapshot;
+    }
+
+    private ByteBuffer encode() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(log)) {
+            moveLog.write(out);
+        }
+        int gridBytes = (cells.length + 3) / 4;
+        int bodyBytes = FIXED_BODY_BYTES + gridBytes + 4 + log.size();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyBytes);
+        buffer.position(HEADER_BYTES);
+        buffer.putInt(rows).putInt(cols).putLong(seed).putInt(playerX).putInt(playerY).putInt(obstacleCount)
+                .putInt(moves).putInt(treasuresRemaining).putInt(parMoves).putLong(elapsedMillis);
+        buffer.putLong(0); // Reserved
+        int full = cells.length & ~3;
+        for (int cell = 0; cell < full; cell += 4) {
+            buffer.put((byte) (cells[cell] | cells[cell + 1] << 2 | cells[cell + 2] << 4 | cells[cell + 3] << 6));
+        }
+        if (full < cells.length) {
+            int packed = 0;
+            for (int cell = full; cell < cells.length; cell++) {
+                packed |= cells[cell] << (2 * (cell - full));
+            }
+            buffer.put((byte) packed);
+        }
+        buffer.putInt(log.size());
+        buffer.put(log.toByteArray());
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyBytes);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, bodyBytes).putInt(12, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static GameSnapshot decode(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException("Not a saved game: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Not a version " + VERSION + " saved game: " + file);
+        }
+        int bodyBytes = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (bodyBytes != buffer.limit() - HEADER_BYTES) {
+            throw new IOException("Saved game is truncated: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyBytes);
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Saved game is corrupt: " + file);
+        }
+
+        buffer.position(HEADER_BYTES);
+        int rows = buffer.getInt();
+        int cols = buffer.getInt();
+        long seed = buffer.getLong();
+        int playerX = buffer.getInt();
+        int playerY = buffer.getInt();
+        int obstacleCount = buffer.getInt();
+        int moves = buffer.getInt();
+        int treasuresRemaining = buffer.getInt();
+        int parMoves = buffer.getInt();
+        long elapsedMillis = buffer.getLong();
+        buffer.getLong(); // Reserved
+        long size = (long) rows * cols;
+        if (rows <= 0 || cols <= 0 || (size + 3) / 4 > buffer.remaining() - 4) {
+            throw new IOException("Saved game has an invalid board size " + rows + "x" + cols + ": " + file);
+        }
+        byte[] cells = new byte[(int) size];
+        int full = cells.length & ~3;
+        IntBuffer unpacked = ByteBuffer.wrap(cells, 0, full).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        byte[] packedCells = buffer.array();
+        int offset = buffer.position();
+        for (int quad = 0; quad < full / 4; quad++) {
+            unpacked.put(quad, UNPACKED[packedCells[offset + quad] & 0xFF]); // 4 cells at a time
+        }
+        buffer.position(offset + full / 4);
+        if (full < cells.length) {
+            int packed = buffer.get();
+            for (int cell = full; cell < cells.length; cell++) {
+                cells[cell] = (byte) (packed >> (2 * (cell - full)) & 3);
+            }
+        }
+        int logBytes = buffer.getInt();
+        if (logBytes < 0 || logBytes > buffer.remaining()) {
+            throw new IOException("Saved game is truncated: " + file);
+        }
+        MoveLog moveLog = MoveLog.read(new DataInputStream(
+                new ByteArrayInputStream(buffer.array(), buffer.position(), logBytes)));
+        return new GameSnapshot(rows, cols, seed, playerX, playerY, obstacleCount, moves, treasuresRemaining,
+                parMoves, elapsedMillis, cells, moveLog);
+    }
+}
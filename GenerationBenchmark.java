@@ -0,0 +1,124 @@
+import java.util.*;
+
+// Benchmark comparing the original per-obstacle BFS generation against the incremental reachability engine.
+// Run with: java GenerationBenchmark [sizes...]
+public class GenerationBenchmark {
+    private static final int TREASURES = 7;
+    private static final double OBSTACLE_DENSITY = 0.2;
+    private static final int MAX_NAIVE_SIZE = 200; // The full-BFS version is quadratic, so larger boards are skipped
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{10, 50, 100, 200, 500, 1000};
+
+        System.out.printf("%-12s %14s %14s %12s%n", "grid", "full BFS (ms)", "engine (ms)", "obstacles");
+        for (int size : sizes) {
+            String naive = size <= MAX_NAIVE_SIZE ? String.format("%.2f", time(size, false)) : "skipped";
+            double engine = time(size, true);
+            System.out.printf("%-12s %14s %14.2f %12d%n", size + "x" + size, naive, engine, obstacleCount(size));
+        }
+    }
+
+    private static int obstacleCount(int size) {
+        return (int) (size * size * OBSTACLE_DENSITY);
+    }
+
+    // Method to time the best of several generation runs
+    private static double time(int size, boolean useEngine) {
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS + 1; run++) { // First run is warm-up
+            Random random = new Random(run);
+            GameBoard board = new GameBoard(size, size);
+            int player = placePlayerAndTreasures(board, random);
+            long start = System.nanoTime();
+            if (useEngine) {
+                placeWithEngine(board, random, obstacleCount(size));
+            } else {
+                placeWithFullBfs(board, random, obstacleCount(size), player);
+            }
+            double elapsed = (System.nanoTime() - start) / 1_000_000.0;
+            if (run > 0) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best;
+    }
+
+    private static int placePlayerAndTreasures(GameBoard board, Random random) {
+        int player = random.nextInt(board.size());
+        board.set(player, GameBoard.PLAYER);
+        int treasures = TREASURES;
+        while (treasures > 0) {
+            int cell = random.nextInt(board.size());
+            if (board.get(cell) == GameBoard.EMPTY) {
+                board.set(cell, GameBoard.TREASURE);
+                treasures--;
+            }
+        }
+        return player;
+    }
+
+    private static void placeWithEngine(GameBoard board, Random random, int obstacles) {
+        ReachabilityEngine reachability = new ReachabilityEngine(board);
+        int[] emptyCells = new int[board.size()];
+        int emptyCount = 0;
+        for (int cell = 0; cell < board.size(); cell++) {
+            if (board.get(cell) == GameBoard.EMPTY) {
+                emptyCells[emptyCount++] = cell;
+            }
+        }
+        while (obstacles > 0 && emptyCount > 0) {
+            int pick = random.nextInt(emptyCount);
+            int cell = emptyCells[pick];
+            emptyCells[pick] = emptyCells[--emptyCount];
+            if (reachability.tryPlaceObstacle(cell)) {
+                obstacles--;
+            }
+        }
+    }
+
+    // The generation loop as it was before the reachability engine: a full BFS after every obstacle
+    private static void placeWithFullBfs(GameBoard board, Random random, int obstacles, int player) {
+        List<Integer> emptyCells = new ArrayList<>();
+        for (int cell = 0; cell < board.size(); cell++) {
+            if (board.get(cell) == GameBoard.EMPTY) {
+                emptyCells.add(cell);
+            }
+        }
+        while (obstacles > 0 && !emptyCells.isEmpty()) {
+            int cell = emptyCells.remove(random.nextInt(emptyCells.size()));
+            board.set(cell, GameBoard.OBSTACLE);
+            if (!allTreasuresReachable(board, player)) {
+                board.set(cell, GameBoard.EMPTY);
+            } else {
+                obstacles--;
+            }
+        }
+    }
+
+    private static boolean allTreasuresReachable(GameBoard board, int player) {
+        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        boolean[][] visited = new boolean[board.getRows()][board.getCols()];
+        Queue<int[]> queue = new LinkedList<>();
+        queue.add(new int[]{board.rowOf(player), board.colOf(player)});
+        visited[board.rowOf(player)][board.colOf(player)] = true;
+        int treasuresFound = 0;
+        while (!queue.isEmpty()) {
+            int[] current = queue.poll();
+            if (board.get(current[0], current[1]) == GameBoard.TREASURE) {
+                treasuresFound++;
+            }
+            for (int[] direction : directions) {
+                int newX = current[0] + direction[0];
+                int newY = current[1] + direction[1];
+                if (board.inBounds(newX, newY) && !visited[newX][newY] && board.get(newX, newY) != GameBoard.OBSTACLE) {
+                    visited[newX][newY] = true;
+                    queue.add(new int[]{newX, newY});
+                }
+            }
+        }
+        return treasuresFound == TREASURES;
+    }
+}
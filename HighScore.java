@@ -0,0 +1,50 @@
+import java.util.Comparator;
+
+// HighScore class to store high score data
+class HighScore {
+    // Ranking order: lowest time to the millisecond first, then fewest moves
+    public static final Comparator<HighScore> RANKING = Comparator
+            .comparingInt(HighScore::getTimeMillis)
+            .thenComparingInt(HighScore::getMoves);
+    // Longest name a new score may have. The name table stores names with a 2-byte length, so without a limit one
+    // long name could never be written and would hold up every score queued with it
+    public static final int MAX_NAME_LENGTH = 32;
+
+    private final String name;
+    private final int timeMillis;
+    private final int moves;
+    private final int parMoves; // Fewest moves that could have collected every treasure; 0 if unknown
+    private final long seed; // Seed the board was generated from, or GameEngine.NO_SEED if unknown
+
+    public HighScore(String name, int timeMillis, int moves) {
+        this(name, timeMillis, moves, 0, GameEngine.NO_SEED);
+    }
+
+    public HighScore(String name, int timeMillis, int moves, int parMoves, long seed) {
+        this.name = name;
+        this.timeMillis = timeMillis;
+        this.moves = moves;
+        this.parMoves = parMoves;
+        this.seed = seed;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTimeMillis() {
+        return timeMillis;
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public int getParMoves() {
+        return parMoves;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,74 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// One-time migration of the old text high score file ("name - time seconds, moves moves" per line)
+// into the binary HighScoreStore format. The text file is left in place as a backup.
+// Run by hand with: java HighScoreMigrator <highscores.txt> <store base path>
+class HighScoreMigrator {
+    // Method to migrate the text file into the store, but only if the store has not been created yet
+    public static boolean migrateIfNeeded(String textPath, HighScoreStore store) {
+        Path text = Paths.get(textPath);
+        if (store.exists() || !Files.exists(text)) {
+            return false;
+        }
+        try {
+            List<HighScore> scores = new ArrayList<>();
+            int skipped = 0;
+            try (BufferedReader reader = Files.newBufferedReader(text, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    HighScore score = parse(line);
+                    if (score != null) {
+                        scores.add(score);
+                    } else if (!line.isBlank()) {
+                        skipped++; // A bad line only loses itself, not the rest of the file
+                    }
+                }
+            }
+            store.replaceAll(scores);
+            System.out.println("Migrated " + scores.size() + " high scores from " + text
+                    + (skipped > 0 ? " (skipped " + skipped + " malformed lines)" : ""));
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Method to parse one "name - time seconds, moves moves" line, or return null if it is malformed
+    static HighScore parse(String line) {
+        int nameEnd = line.lastIndexOf(" - ");
+        int detailsSplit = line.lastIndexOf(", ");
+        if (nameEnd <= 0 || detailsSplit < nameEnd || !line.endsWith(" moves")) {
+            return null;
+        }
+        int timeEnd = line.indexOf(" seconds", nameEnd);
+        if (timeEnd < 0 || timeEnd > detailsSplit) {
+            return null;
+        }
+        try {
+            int time = Integer.parseInt(line, nameEnd + 3, timeEnd, 10);
+            int moves = Integer.parseInt(line, detailsSplit + 2, line.length() - " moves".length(), 10);
+            return new HighScore(line.substring(0, nameEnd), time * 1000, moves); // The text file had whole seconds
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage: java HighScoreMigrator <highscores.txt> <store base path>");
+            return;
+        }
+        HighScoreStore store = new HighScoreStore(args[1]);
+        if (!migrateIfNeeded(args[0], store)) {
+            System.out.println("Nothing to migrate: " + args[1] + ".dat already exists or " + args[0] + " is missing");
+        }
+    }
+}
@@ -0,0 +1,535 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Persistent high score table stored in a compact binary format, safe to share between several game processes.
+//
+// <base>.dat holds a 32-byte header followed by fixed-width 24-byte records (name id, time in
+// milliseconds, moves, par moves, seed).
+// The first sortedCount records were written by compaction in ranked order and are read straight from a
+// memory-mapped buffer, so the top N can be served without decoding the rest of the file. Records appended
+// since the last compaction are also kept in a skip list ordered by (time, moves), which keeps adding a score
+// and reading the top N at O(log n). Names are interned in <base>.names, a table of length-prefixed UTF-8 strings
+// whose position in the file is the name id.
+//
+// Every change to the files happens under an exclusive FileChannel lock on <base>.lock. New scores are queued
+// and appended by a background writer, which writes everything queued so far as one batch with a single fsync.
+// A batch stays queued until its fsync succeeds; a failed write is retried with growing delays, and flush() reports
+// the error once several attempts in a row have failed.
+// Compaction writes a complete temp file, syncs it and atomically renames it over the old one, so a crash at any
+// point leaves either the old or the new file. Partly written records or names left by a crashed writer are
+// trimmed off by the next writer before it appends.
+class HighScoreStore {
+    static final int MAGIC = 0x54485343; // "THSC"
+    static final int VERSION = 4; // Older versions are read and upgraded on the first write
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 24;
+    private static final int MIN_APPENDS_BEFORE_COMPACTION = 1024;
+    private static final long FIRST_RETRY_MILLIS = 100; // Doubled after each failed write, up to MAX_RETRY_MILLIS
+    private static final long MAX_RETRY_MILLIS = 30_000;
+    private static final int FAILED_WRITES_REPORTED = 5; // Failures in a row before flush() gives up waiting
+    private static final LatencyHistogram LOAD = Metrics.shared().histogram(
+            "treasure_score_load_seconds", "Time to read the high score files, including waiting for the file lock");
+    private static final LatencyHistogram APPEND = Metrics.shared().histogram(
+            "treasure_score_append_seconds", "Time to append and sync one batch of high scores");
+    private static final LatencyHistogram COMPACT = Metrics.shared().histogram(
+            "treasure_score_compact_seconds", "Time to rewrite the high score file in ranked order");
+    private static final Metrics.Counter SCORES_WRITTEN = Metrics.shared().counter(
+            "treasure_scores_written_total", "High scores appended to the file");
+    private static final Metrics.Counter WRITE_FAILURES = Metrics.shared().counter(
+            "treasure_score_write_failures_total", "Batches of high scores that failed to write and were retried");
+
+    // A score plus its insertion number, which keeps equal scores distinct and in arrival order
+    private static final class Entry {
+        final HighScore score;
+        final long sequence;
+        final boolean onDisk; // False for scores added by this process that were not yet written when loaded
+
+        Entry(HighScore score, long sequence, boolean onDisk) {
+            this.score = score;
+            this.sequence = sequence;
+            this.onDisk = onDisk;
+        }
+    }
+
+    private static final Comparator<Entry> ORDER = Comparator
+            .comparing((Entry entry) -> entry.score, HighScore.RANKING)
+            .thenComparingLong(entry -> entry.sequence);
+
+    private final Path dataFile;
+    private final Path namesFile;
+    private final Path lockFile;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private long namesBytesRead;
+    private final ConcurrentSkipListSet<Entry> appended = new ConcurrentSkipListSet<>(ORDER);
+    private final AtomicLong nextSequence = new AtomicLong();
+    private ByteBuffer sorted; // Memory-mapped ranked records, null when there are none
+    private int sortedCount;
+    private Object loadedFileKey; // Identity and size of the data file as last seen, to notice other writers
+    private long loadedSize = -1;
+    private int loadedVersion = VERSION; // Version of the file as loaded, which may be older than VERSION
+    private int loadedRecordBytes = RECORD_BYTES;
+    private FileChannel lockChannel;
+    private long generation; // Times the files have been read, so an index built on top knows when to rebuild
+
+    // Scores accepted by add() but not yet on disk; only removed once the writer has synced them. Its lock also
+    // covers every change to appended, so a score is always in the in-memory view exactly once
+    private final List<HighScore> pending = new ArrayList<>();
+    private Thread writer;
+    private int failedWrites; // Failed attempts in a row at writing the oldest pending scores; guarded by pending
+    private IOException writeFailure; // Error from the last of those attempts; guarded by pending
+    private boolean reloadBeforeWrite; // Set after a failed write, whose names may be in memory but not on disk
+    private long batchesWritten;
+
+    // The store uses basePath + ".dat", basePath + ".names" and basePath + ".lock"
+    public HighScoreStore(String basePath) {
+        this.dataFile = Paths.get(basePath + ".dat");
+        this.namesFile = Paths.get(basePath + ".names");
+        this.lockFile = Paths.get(basePath + ".lock");
+    }
+
+    public boolean exists() {
+        return Files.exists(dataFile);
+    }
+
+    // Method to map the ranked part of the file and read the unsorted tail into memory
+    public synchronized void load() {
+        long start = System.nanoTime();
+        try (FileLock lock = lock(true)) {
+            readFiles(lock);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        LOAD.recordSince(start);
+    }
+
+    // Method to reload if another process has written to the file since it was last read
+    public synchronized void refresh() {
+        try {
+            if (Files.exists(dataFile) && changedOnDisk()) {
+                load();
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted since it was checked
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Method to add a score: O(log n) in memory, queued for the background writer to append to disk
+    public void add(HighScore score) {
+        if (score.getName().length() > HighScore.MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Names are limited to " + HighScore.MAX_NAME_LENGTH + " characters");
+        }
+        synchronized (pending) {
+            appended.add(new Entry(score, nextSequence.getAndIncrement(), false));
+            pending.add(score);
+            pending.notifyAll();
+            if (writer == null) {
+                writer = new Thread(this::writeLoop, "high-score-writer");
+                writer.setDaemon(true);
+                writer.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> { // Don't lose a score on exit
+                    try {
+                        flush();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }));
+            }
+        }
+    }
+
+    // Method to wait until every added score has been synced to disk. Throws if the writer keeps failing; the scores
+    // stay queued and it keeps retrying
+    public void flush() throws IOException {
+        synchronized (pending) {
+            while (!pending.isEmpty()) {
+                if (failedWrites >= FAILED_WRITES_REPORTED) {
+                    throw new IOException("High scores could not be saved after " + failedWrites + " attempts",
+                            writeFailure);
+                }
+                try {
+                    pending.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    // Number of batches (and so data file fsyncs) this store has written
+    public synchronized long getBatchesWritten() {
+        return batchesWritten;
+    }
+
+    // Method to get the best n scores in ranked order, merging the mapped prefix with the appended scores
+    public synchronized List<HighScore> top(int n) {
+        return ranked(n, false);
+    }
+
+    private List<HighScore> ranked(int n, boolean onDiskOnly) {
+        List<HighScore> top = new ArrayList<>(Math.min(n, 64));
+        Iterator<Entry> tail = appended.stream().filter(entry -> entry.onDisk || !onDiskOnly).iterator();
+        Entry next = tail.hasNext() ? tail.next() : null;
+        int index = 0;
+        HighScore fromPrefix = index < sortedCount ? sortedAt(index) : null;
+        while (top.size() < n && (fromPrefix != null || next != null)) {
+            if (next == null || (fromPrefix != null && HighScore.RANKING.compare(fromPrefix, next.score) <= 0)) {
+                top.add(fromPrefix);
+                index++;
+                fromPrefix = index < sortedCount ? sortedAt(index) : null;
+            } else {
+                top.add(next.score);
+                next = tail.hasNext() ? tail.next() : null;
+            }
+        }
+        return top;
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    public synchronized int size() {
+        return sortedCount + appended.size();
+    }
+
+    // Method to rewrite the file with every record in ranked order, swapping it in only once it is complete
+    public synchronized void compact() {
+        long start = System.nanoTime();
+        try (FileLock lock = lock(false)) {
+            readFiles(lock); // Pick up scores from other processes
+            replaceDataFile(ranked(Integer.MAX_VALUE, true)); // Scores added meanwhile are still queued for the writer
+            readFiles(lock);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        COMPACT.recordSince(start);
+    }
+
+    // Method to replace the whole table with the given scores; used by the text-format migrator
+    public synchronized void replaceAll(Collection<HighScore> scores) throws IOException {
+        List<HighScore> ranked = new ArrayList<>(scores);
+        ranked.sort(HighScore.RANKING);
+        try (FileLock lock = lock(false)) {
+            names.clear();
+            nameIds.clear();
+            namesBytesRead = 0;
+            Files.deleteIfExists(namesFile);
+            replaceDataFile(ranked);
+            readFiles(lock);
+        }
+    }
+
+    // Writer thread: append whatever has been queued as one batch, then let waiting flushes through
+    private void writeLoop() {
+        while (true) {
+            List<HighScore> batch;
+            synchronized (pending) {
+                while (pending.isEmpty()) {
+                    try {
+                        pending.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                batch = new ArrayList<>(pending);
+            }
+            IOException failure = null;
+            long retryMillis = 0;
+            boolean compact;
+            synchronized (this) {
+                long start = System.nanoTime();
+                boolean written = false;
+                try (FileLock lock = lock(false)) {
+                    appendBatch(lock, batch);
+                    written = true;
+                } catch (IOException e) {
+                    if (written) {
+                        e.printStackTrace(); // Only releasing the lock failed; the batch is synced
+                    } else {
+                        failure = e;
+                    }
+                }
+                APPEND.recordSince(start);
+                reloadBeforeWrite = failure != null;
+                synchronized (pending) {
+                    if (failure == null) {
+                        pending.subList(0, batch.size()).clear();
+                        failedWrites = 0;
+                        writeFailure = null;
+                    } else {
+                        failedWrites++;
+                        writeFailure = failure;
+                        retryMillis = Math.min(MAX_RETRY_MILLIS, FIRST_RETRY_MILLIS << Math.min(failedWrites - 1, 20));
+                    }
+                    pending.notifyAll();
+                }
+                compact = failure == null
+                        && appended.size() >= Math.max(MIN_APPENDS_BEFORE_COMPACTION, sortedCount / 4);
+            }
+            if (failure != null) {
+                failure.printStackTrace();
+                WRITE_FAILURES.increment();
+                try {
+                    Thread.sleep(retryMillis); // The batch is still pending, so the next pass writes it again
+                } catch (InterruptedException e) {
+                    return;
+                }
+                continue;
+            }
+            SCORES_WRITTEN.add(batch.size());
+            if (compact) {
+                compact();
+            }
+        }
+    }
+
+    // Method to append a batch of records with a single sync; the caller holds the exclusive lock
+    private void appendBatch(FileLock lock, List<HighScore> batch) throws IOException {
+        if (reloadBeforeWrite || changedOnDisk()) {
+            // Another process appended or compacted, or the last write failed part way; read the files as they are
+            // before loadedSize moves on
+            readFiles(lock);
+        }
+        if (Files.exists(dataFile) && fileVersion() != VERSION) {
+            readFiles(lock);
+            replaceDataFile(ranked(Integer.MAX_VALUE, true)); // Upgrade an old file before appending new records
+            readFiles(lock);
+        }
+        syncNames();
+        ByteArrayOutputStream newNames = new ByteArrayOutputStream();
+        DataOutputStream namesOut = new DataOutputStream(newNames);
+        ByteBuffer records = ByteBuffer.allocate(batch.size() * RECORD_BYTES);
+        for (HighScore score : batch) {
+            Integer id = nameIds.get(score.getName());
+            if (id == null) {
+                id = names.size();
+                names.add(score.getName());
+                nameIds.put(score.getName(), id);
+                namesOut.writeUTF(score.getName());
+            }
+            records.putInt(id).putInt(score.getTimeMillis()).putInt(score.getMoves()).putInt(score.getParMoves()).putLong(score.getSeed());
+        }
+        records.flip();
+
+        if (newNames.size() > 0) {
+            try (FileChannel channel = FileChannel.open(namesFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(newNames.toByteArray()), namesBytesRead);
+                channel.truncate(namesBytesRead + newNames.size());
+                channel.force(false); // Names must be durable before any record refers to them
+            }
+            namesBytesRead += newNames.size();
+        }
+
+        if (!Files.exists(dataFile)) {
+            replaceDataFile(Collections.emptyList());
+        }
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.WRITE)) {
+            long end = channel.size();
+            end -= (end - HEADER_BYTES) % RECORD_BYTES; // Overwrite a record left half-written by a crash
+            while (records.hasRemaining()) {
+                end += channel.write(records, end);
+            }
+            channel.truncate(end);
+            channel.force(false);
+            loadedSize = end;
+        }
+        loadedFileKey = Files.readAttributes(dataFile, BasicFileAttributes.class).fileKey();
+        batchesWritten++;
+    }
+
+    // Method to write a complete data file to a temp file, sync it and rename it over the real one
+    private void replaceDataFile(List<HighScore> scores) throws IOException {
+        Path temp = dataFile.resolveSibling(dataFile.getFileName() + ".tmp");
+        ByteArrayOutputStream newNames = new ByteArrayOutputStream();
+        DataOutputStream namesOut = new DataOutputStream(newNames);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(RECORD_BYTES);
+            out.writeInt(scores.size()); // Every record in this file is in ranked order
+            out.write(new byte[HEADER_BYTES - 16]);
+            for (HighScore score : scores) {
+                Integer id = nameIds.get(score.getName());
+                if (id == null) {
+                    id = names.size();
+                    names.add(score.getName());
+                    nameIds.put(score.getName(), id);
+                    namesOut.writeUTF(score.getName());
+                }
+                out.writeInt(id);
+                out.writeInt(score.getTimeMillis());
+                out.writeInt(score.getMoves());
+                out.writeInt(score.getParMoves());
+                out.writeLong(score.getSeed());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        if (newNames.size() > 0) {
+            try (FileChannel channel = FileChannel.open(namesFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(newNames.toByteArray()), namesBytesRead);
+                channel.truncate(namesBytesRead + newNames.size());
+                channel.force(false);
+            }
+            namesBytesRead += newNames.size();
+        }
+        try {
+            Files.move(temp, dataFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, dataFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory();
+    }
+
+    // Method to make the rename itself durable; not every platform can sync a directory, so failures are ignored
+    private void syncDirectory() {
+        Path directory = dataFile.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort only
+        }
+    }
+
+    // Method to check whether the data file has changed since it was last read or written by this store
+    private boolean changedOnDisk() throws IOException {
+        if (!Files.exists(dataFile)) {
+            return loadedSize != -1;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(dataFile, BasicFileAttributes.class);
+        return attributes.size() != loadedSize || !Objects.equals(attributes.fileKey(), loadedFileKey);
+    }
+
+    // Method to read names, header, mapped prefix and tail; the caller holds the given lock on the lock file
+    private void readFiles(FileLock lock) throws IOException {
+        if (!lock.isValid()) {
+            throw new IllegalStateException("The high score files must be read under the file lock");
+        }
+        generation++;
+        names.clear();
+        nameIds.clear();
+        namesBytesRead = 0;
+        sorted = null;
+        sortedCount = 0;
+        loadedSize = -1;
+        loadedFileKey = null;
+        syncNames();
+        List<Entry> tailEntries = new ArrayList<>();
+        if (Files.exists(dataFile)) {
+            try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                channel.read(header, 0);
+                header.flip();
+                int version = header.remaining() < HEADER_BYTES || header.getInt() != MAGIC ? -1 : header.getInt();
+                int recordBytes = header.remaining() >= 4 ? header.getInt() : -1;
+                if (recordBytes != recordBytes(version)) {
+                    throw new IOException("Not a version 1-" + VERSION + " high score file: " + dataFile);
+                }
+                loadedVersion = version;
+                loadedRecordBytes = recordBytes;
+                // A partly written record at the end (e.g. after a crash) is ignored
+                loadedSize = channel.size();
+                long records = (loadedSize - HEADER_BYTES) / recordBytes;
+                sortedCount = (int) Math.min(header.getInt(), records);
+                sorted = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, (long) sortedCount * recordBytes);
+
+                ByteBuffer tail = ByteBuffer.allocate((int) ((records - sortedCount) * recordBytes));
+                channel.read(tail, HEADER_BYTES + (long) sortedCount * recordBytes);
+                for (int offset = 0; offset + recordBytes <= tail.capacity(); offset += recordBytes) {
+                    tailEntries.add(new Entry(decode(tail, offset), nextSequence.getAndIncrement(), true));
+                }
+            }
+            loadedFileKey = Files.readAttributes(dataFile, BasicFileAttributes.class).fileKey();
+        }
+        synchronized (pending) { // Swapped in under the lock add() takes, so a score added meanwhile is kept once
+            appended.clear();
+            appended.addAll(tailEntries);
+            for (HighScore score : pending) {
+                appended.add(new Entry(score, nextSequence.getAndIncrement(), false));
+            }
+        }
+    }
+
+    // Method to read any names added to the string table since it was last read
+    private void syncNames() throws IOException {
+        if (!Files.exists(namesFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(namesFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) (channel.size() - namesBytesRead));
+            channel.read(buffer, namesBytesRead);
+            buffer.flip();
+            while (buffer.remaining() >= 2) {
+                int length = Short.toUnsignedInt(buffer.getShort(buffer.position()));
+                if (buffer.remaining() < 2 + length) {
+                    break; // Half-written by a crashed writer; the next append overwrites it
+                }
+                DataInputStream in = new DataInputStream(
+                        new ByteArrayInputStream(buffer.array(), buffer.position(), 2 + length));
+                String name = in.readUTF();
+                nameIds.putIfAbsent(name, names.size());
+                names.add(name);
+                buffer.position(buffer.position() + 2 + length);
+                namesBytesRead += 2 + length;
+            }
+        }
+    }
+
+    private FileLock lock(boolean shared) throws IOException {
+        if (lockChannel == null) {
+            Path parent = lockFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return lockChannel.lock(0, Long.MAX_VALUE, shared);
+    }
+
+    private HighScore sortedAt(int index) {
+        return decode(sorted, index * loadedRecordBytes);
+    }
+
+    // Method to decode the record at offset; fields an older version did not have are left unknown
+    private HighScore decode(ByteBuffer buffer, int offset) {
+        int nameId = buffer.getInt(offset);
+        String name = nameId >= 0 && nameId < names.size() ? names.get(nameId) : "?";
+        int time = loadedVersion >= 4 ? buffer.getInt(offset + 4) : buffer.getInt(offset + 4) * 1000; // Was seconds
+        int parMoves = loadedVersion >= 2 ? buffer.getInt(offset + 12) : 0;
+        long seed = loadedVersion >= 3 ? buffer.getLong(offset + 16) : GameEngine.NO_SEED;
+        return new HighScore(name, time, buffer.getInt(offset + 8), parMoves, seed);
+    }
+
+    // Record size of each file version: 1 had (name id, time, moves), 2 added par moves, 3 added the seed and 4
+    // changed the time from seconds to milliseconds
+    private static int recordBytes(int version) {
+        return switch (version) {
+            case 1 -> 12;
+            case 2 -> 16;
+            case 3, VERSION -> RECORD_BYTES;
+            default -> -1;
+        };
+    }
+
+    private int fileVersion() throws IOException {
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, 0);
+            return header.getInt(4);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+// Baseline benchmarks for the game's hot paths: board generation, board rendering, high score load/save, the
+// high score comparator, leaderboard rank and page queries, and saving and resuming a game in progress. Each
+// benchmark is run for a fixed number of timed iterations after warm-up iterations and reports the mean time per
+// operation with its spread, in the spirit of a JMH average-time benchmark.
+// Run with: java HotPathBenchmark [name filter] [--quick]
+public class HotPathBenchmark {
+    private static final int[] GRID_SIZES = {10, 100, 1000};
+    private static final int[] OBSTACLE_PERCENTS = {10, 20, 29};
+    private static final int[] SCORE_COUNTS = {10_000, 100_000, 1_000_000};
+    private static final int VIEWPORT_CELLS = 10; // Cells visible in each direction, like the default window
+
+    private static String filter = "";
+    private static int warmupIterations = 3;
+    private static int measuredIterations = 5;
+    private static long iterationNanos = 500_000_000L;
+    private static volatile long sink; // Results are written here so the JIT cannot drop the measured work
+
+    // One measured operation; returns any value derived from its work
+    private interface Operation {
+        long run() throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String arg : args) {
+            if (arg.equals("--quick")) {
+                warmupIterations = 1;
+                measuredIterations = 3;
+                iterationNanos = 100_000_000L;
+            } else {
+                filter = arg;
+            }
+        }
+
+        System.out.printf("%-20s %-28s %16s %12s%n", "benchmark", "params", "ns/op", "+-");
+        for (int size : GRID_SIZES) {
+            for (int percent : OBSTACLE_PERCENTS) {
+                String params = "grid=" + size + "x" + size + " obstacles=" + percent + "%";
+                if (selected("generate")) {
+                    benchmarkGeneration(size, percent, params);
+                }
+                if (selected("render.step", "render.viewport")) {
+                    benchmarkRendering(size, percent, params);
+                }
+            }
+        }
+        for (int size : GRID_SIZES) {
+            if (selected("snapshot.save", "snapshot.restore")) {
+                benchmarkSnapshot(size, "grid=" + size + "x" + size);
+            }
+        }
+        // Scores do not depend on the board, so these are parameterized by table size only
+        for (int count : SCORE_COUNTS) {
+            String params = "scores=" + count;
+            if (!selected("scores.save", "scores.load", "scores.sort", "leaderboard.rank", "leaderboard.page")) {
+                continue;
+            }
+            List<HighScore> scores = randomScores(count);
+            if (selected("scores.save", "scores.load")) {
+                benchmarkStore(scores, params);
+            }
+            if (selected("scores.sort")) {
+                HighScore[] source = scores.toArray(new HighScore[0]);
+                measure("scores.sort", params, () -> {
+                    HighScore[] copy = source.clone(); // The copy is part of each operation so every sort starts unsorted
+                    Arrays.sort(copy, HighScore.RANKING);
+                    return copy[0].getTimeMillis();
+                });
+            }
+            if (selected("leaderboard.rank", "leaderboard.page")) {
+                benchmarkLeaderboard(scores, params);
+            }
+        }
+    }
+
+    // Method to check whether any of the named benchmarks matches the filter given on the command line
+    private static boolean selected(String... names) {
+        for (String name : names) {
+            if (name.contains(filter)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Method to benchmark a complete newGame(): player and treasure placement plus reachability-checked obstacles
+    private static void benchmarkGeneration(int size, int percent, String params) throws Exception {
+        GameEngine engine = new GameEngine(size, size, GameEngine.DEFAULT_TREASURES, percent, percent, new SplittableRandom(42));
+        measure("generate", params, () -> {
+            engine.newGame();
+            return engine.getObstacleCount();
+        });
+    }
+
+    // Method to benchmark the painting a move causes: the dirty cells after a one-cell step, and a full viewport
+    private static void benchmarkRendering(int size, int percent, String params) throws Exception {
+        GameEngine engine = new GameEngine(size, size, GameEngine.DEFAULT_TREASURES, percent, percent, new SplittableRandom(42));
+        BoardView view = new BoardView(engine.getBoard(), 1, SpriteAtlas.shared());
+        SpriteAtlas.shared().preload().join();
+        view.setSize(view.getPreferredSize());
+        int cell = view.getCellSize();
+
+        int viewportPixels = Math.min(size, VIEWPORT_CELLS) * cell;
+        BufferedImage screen = new BufferedImage(viewportPixels, viewportPixels, BufferedImage.TYPE_INT_RGB);
+        int row = Math.min(engine.getPlayerX(), size - 1);
+        int col = Math.min(engine.getPlayerY(), size - 2);
+        Rectangle viewport = new Rectangle(
+                Math.max(0, Math.min(col - VIEWPORT_CELLS / 2, size - VIEWPORT_CELLS)) * cell,
+                Math.max(0, Math.min(row - VIEWPORT_CELLS / 2, size - VIEWPORT_CELLS)) * cell,
+                viewportPixels, viewportPixels);
+        // Cells whose reveal state changes when stepping between col and col + 1
+        Rectangle dirty = new Rectangle((col - 1) * cell, (row - 1) * cell, 4 * cell, 3 * cell);
+
+        if (selected("render.step")) {
+            int[] step = {0};
+            measure("render.step", params, () -> {
+                view.setPlayer(row, col + (step[0]++ & 1));
+                return paint(view, screen, viewport, dirty);
+            });
+        }
+        if (selected("render.viewport")) {
+            measure("render.viewport", params, () -> paint(view, screen, viewport, viewport));
+        }
+    }
+
+    // Method to paint the clip rectangle of the view into the screen image, which stands in for the viewport
+    private static long paint(BoardView view, BufferedImage screen, Rectangle viewport, Rectangle clip) {
+        Graphics2D g = screen.createGraphics();
+        g.translate(-viewport.x, -viewport.y);
+        g.clipRect(clip.x, clip.y, clip.width, clip.height);
+        view.paint(g);
+        g.dispose();
+        return screen.getRGB(0, 0);
+    }
+
+    // Method to benchmark writing a whole table and loading it back in a fresh store, as a new game process does
+    private static void benchmarkStore(List<HighScore> scores, String params) throws Exception {
+        Path directory = Files.createTempDirectory("highscores");
+        String base = directory.resolve("highscores").toString();
+        try {
+            HighScoreStore writer = new HighScoreStore(base);
+            if (selected("scores.save")) {
+                measure("scores.save", params, () -> {
+                    writer.replaceAll(scores);
+                    return writer.size();
+                });
+            } else {
+                writer.replaceAll(scores);
+            }
+            if (selected("scores.load")) {
+                measure("scores.load", params, () -> {
+                    HighScoreStore reader = new HighScoreStore(base);
+                    reader.load();
+                    return reader.top(10).get(0).getTimeMillis();
+                });
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Method to benchmark an auto-save (capture on the EDT, then encode, write and sync) and resuming from the file
+    private static void benchmarkSnapshot(int size, String params) throws Exception {
+        GameEngine engine = new GameEngine(size, size, new SplittableRandom(42));
+        MoveLog log = new MoveLog(engine);
+        Path file = Files.createTempFile("snapshot", ".dat");
+        try {
+            if (selected("snapshot.save")) {
+                measure("snapshot.save", params, () -> {
+                    GameSnapshot.capture(engine, 0, 0, log).write(file);
+                    return Files.size(file);
+                });
+            }
+            if (selected("snapshot.restore")) {
+                GameSnapshot.capture(engine, 0, 0, log).write(file);
+                measure("snapshot.restore", params, () -> {
+                    GameSnapshot.read(file).restoreInto(engine);
+                    return engine.getObstacleCount();
+                });
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+        }
+    }
+
+    // Method to benchmark the ranked leaderboard over a table written by a store: rank lookups and random pages
+    private static void benchmarkLeaderboard(List<HighScore> scores, String params) throws Exception {
+        Path directory = Files.createTempDirectory("leaderboard");
+        try {
+            HighScoreStore store = new HighScoreStore(directory.resolve("highscores").toString());
+            store.replaceAll(scores);
+            Leaderboard leaderboard = new Leaderboard(store);
+            leaderboard.refresh();
+            int[] next = {0};
+            if (selected("leaderboard.rank")) {
+                measure("leaderboard.rank", params, () -> leaderboard.rank(scores.get(next[0]++ % scores.size())));
+            }
+            if (selected("leaderboard.page")) {
+                int pages = scores.size() / 50;
+                measure("leaderboard.page", params, () -> leaderboard.page(next[0]++ % pages, 50).size());
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static List<HighScore> randomScores(int count) {
+        Random random = new Random(count);
+        List<HighScore> scores = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            scores.add(new HighScore("player" + random.nextInt(1000), random.nextInt(600_000), random.nextInt(400)));
+        }
+        return scores;
+    }
+
+    // Method to run warm-up iterations, then timed iterations, and print the mean time per operation
+    private static void measure(String name, String params, Operation operation) throws Exception {
+        double[] nanosPerOp = new double[measuredIterations];
+        for (int iteration = 0; iteration < warmupIterations + measuredIterations; iteration++) {
+            long operations = 0;
+            long result = 0;
+            long start = System.nanoTime();
+            long elapsed;
+            do {
+                result += operation.run();
+                operations++;
+                elapsed = System.nanoTime() - start;
+            } while (elapsed < iterationNanos);
+            sink = result;
+            if (iteration >= warmupIterations) {
+                nanosPerOp[iteration - warmupIterations] = (double) elapsed / operations;
+            }
+        }
+
+        double mean = Arrays.stream(nanosPerOp).average().orElse(0);
+        double variance = Arrays.stream(nanosPerOp).map(value -> (value - mean) * (value - mean)).sum()
+                / Math.max(1, nanosPerOp.length - 1);
+        System.out.printf("%-20s %-28s %16.1f %12.1f%n", name, params, mean, Math.sqrt(variance));
+    }
+}
@@ -0,0 +1,56 @@
+// Small queue of arrow-key moves between the key listener and the game, drained once per EDT pass.
+// Distinct key presses are queued up to the capacity; auto-repeat from a held key is only accepted when the queue
+// is empty, so a held key moves the player as fast as moves are processed but never builds up a backlog that
+// keeps the player sliding after the key is released.
+class InputQueue {
+    private final int[] dx;
+    private final int[] dy;
+    private final long[] pressedNanos; // When each key event was received, for latency measurement
+    private int head, size;
+
+    public InputQueue(int capacity) {
+        dx = new int[capacity];
+        dy = new int[capacity];
+        pressedNanos = new long[capacity];
+    }
+
+    // Method to queue a move; returns false if it was dropped
+    public boolean offer(int moveX, int moveY, boolean repeat, long nanos) {
+        if (size == dx.length || (repeat && size > 0)) {
+            return false;
+        }
+        int tail = (head + size) % dx.length;
+        dx[tail] = moveX;
+        dy[tail] = moveY;
+        pressedNanos[tail] = nanos;
+        size++;
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // The oldest queued move; only valid while the queue is not empty
+    public int peekDx() {
+        return dx[head];
+    }
+
+    public int peekDy() {
+        return dy[head];
+    }
+
+    public long peekNanos() {
+        return pressedNanos[head];
+    }
+
+    public void remove() {
+        head = (head + 1) % dx.length;
+        size--;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,18 @@
+// Measures the time from a key event reaching the listener to the board being repainted with its move.
+// Samples go into the shared metrics registry; a frame at 60 Hz is the budget each key press should fit in.
+class KeyLatencyMeter {
+    public static final long FRAME_NANOS = 1_000_000_000L / 60;
+    private static final LatencyHistogram LATENCY = Metrics.shared().histogram(
+            "treasure_key_to_paint_seconds", "Time from an arrow key press to the paint that shows the move");
+    private static final Metrics.Counter OVER_BUDGET = Metrics.shared().counter(
+            "treasure_key_to_paint_over_frame_total", "Key presses that took longer than one 60 Hz frame to show");
+
+    // Method to record one key press painted at paintedNanos
+    public void record(long pressedNanos, long paintedNanos) {
+        long latency = paintedNanos - pressedNanos;
+        LATENCY.record(latency);
+        if (latency > FRAME_NANOS) {
+            OVER_BUDGET.increment();
+        }
+    }
+}
@@ -0,0 +1,309 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory ranked index over a HighScoreStore, for rank lookups and paging through every score.
+//
+// Scores are split by time into shards SHARD_MILLIS wide (the last shard takes every slower time). Each shard is an
+// order-statistic treap, a search tree that also keeps the size of each subtree, guarded by its own lock, so writers
+// only contend when their times fall in the same shard. A Fenwick tree of shard sizes, updated with atomic adds,
+// gives the number of scores in all faster shards in O(log shards). Together:
+//   rank(score)   - faster shards from the Fenwick tree plus the scores ahead of it in its own shard, O(log n)
+//   page(n, size) - the shard holding the first entry found by descending the Fenwick tree, then in-order from there
+// Reads running alongside writers see every insert that finished before them and may or may not see the others.
+// Adds and queries share the read side of a read-write lock; rebuilding from the store takes the write side, so a
+// score can never be indexed twice or go missing while the index is rebuilt.
+class Leaderboard {
+    private static final int SHARD_MILLIS = 1000;
+    private static final int SHARDS = 600; // Times of ten minutes and more share the last shard
+    private static final LatencyHistogram INSERT = Metrics.shared().histogram(
+            "treasure_leaderboard_insert_seconds", "Time to add one score to the ranked leaderboard");
+    private static final LatencyHistogram QUERY = Metrics.shared().histogram(
+            "treasure_leaderboard_query_seconds", "Time to answer one rank or page query");
+
+    // Treap node; the sequence keeps equal scores distinct and in arrival order
+    private static final class Node {
+        final HighScore score;
+        final long sequence;
+        final int priority;
+        Node left, right;
+        int size = 1;
+
+        Node(HighScore score, long sequence, int priority) {
+            this.score = score;
+            this.sequence = sequence;
+            this.priority = priority;
+        }
+    }
+
+    private static final Comparator<Node> ORDER = Comparator
+            .comparing((Node node) -> node.score, HighScore.RANKING)
+            .thenComparingLong(node -> node.sequence);
+
+    // One time range of the leaderboard; every field is guarded by the shard's own lock
+    private static final class Shard {
+        Node root;
+        long nextSequence;
+        final SplittableRandom priorities;
+
+        Shard(long seed) {
+            priorities = new SplittableRandom(seed);
+        }
+    }
+
+    private final HighScoreStore store;
+    private final Shard[] shards = new Shard[SHARDS];
+    private final AtomicLongArray counts = new AtomicLongArray(SHARDS + 1); // Fenwick tree, 1-based
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private long loadedGeneration = -1; // Guarded by the write lock
+
+    public Leaderboard(HighScoreStore store) {
+        this.store = store;
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    // Method to rebuild the index from the store if the store has read new scores since the last rebuild
+    public void refresh() {
+        store.refresh(); // Picks up scores written by other game processes
+        rebuildLock.writeLock().lock();
+        try {
+            long generation = store.getGeneration();
+            if (generation == loadedGeneration) {
+                return;
+            }
+            for (Shard shard : shards) {
+                synchronized (shard) {
+                    shard.root = null;
+                }
+            }
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            for (HighScore score : store.top(Integer.MAX_VALUE)) {
+                insert(score);
+            }
+            loadedGeneration = generation;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    // Method to save a score and index it; returns its rank, counting from 1
+    public int add(HighScore score) {
+        rebuildLock.readLock().lock();
+        try {
+            store.add(score); // Queued for the store's background writer
+            long start = System.nanoTime();
+            Node node = insert(score);
+            INSERT.recordSince(start);
+            int shard = shardOf(score);
+            long before = prefixCount(shard);
+            synchronized (shards[shard]) {
+                before += countBefore(shards[shard].root, node);
+            }
+            return (int) Math.min(Integer.MAX_VALUE, before + 1);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    // Method to find the row page() shows the given score on, counting from 1. Equal scores keep the order they were
+    // added in, so among them this is the row of the first one with the same name, seed and par; a score that is not
+    // on the leaderboard gets the row after every better one
+    public int rank(HighScore score) {
+        long start = System.nanoTime();
+        int shard = shardOf(score);
+        long before;
+        rebuildLock.readLock().lock();
+        try {
+            before = prefixCount(shard);
+            synchronized (shards[shard]) {
+                Node root = shards[shard].root;
+                int better = (int) countBetter(root, score);
+                before += better + countEqualBefore(root, better, score);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+        QUERY.recordSince(start);
+        return (int) Math.min(Integer.MAX_VALUE, before + 1);
+    }
+
+    public List<HighScore> top(int k) {
+        return page(0, k);
+    }
+
+    // Method to get page number n (from 0) of the ranked scores, pageSize scores per page
+    public List<HighScore> page(int n, int pageSize) {
+        long start = System.nanoTime();
+        List<HighScore> page = new ArrayList<>(Math.min(pageSize, 256));
+        long offset = (long) n * pageSize;
+        rebuildLock.readLock().lock();
+        try {
+            int shard = findShard(offset);
+            long skip = offset - prefixCount(shard);
+            while (page.size() < pageSize && shard < SHARDS) {
+                synchronized (shards[shard]) {
+                    Node root = shards[shard].root;
+                    for (long index = Math.max(0, skip); index < size(root) && page.size() < pageSize; index++) {
+                        page.add(select(root, (int) index).score);
+                    }
+                    skip -= size(root); // Non-zero only if the shard changed size since the Fenwick tree was read
+                }
+                skip = Math.max(0, skip);
+                shard++;
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+        QUERY.recordSince(start);
+        return page;
+    }
+
+    public long size() {
+        return prefixCount(SHARDS);
+    }
+
+    private Node insert(HighScore score) {
+        int index = shardOf(score);
+        Shard shard = shards[index];
+        Node node;
+        synchronized (shard) {
+            node = new Node(score, shard.nextSequence++, shard.priorities.nextInt());
+            Node[] parts = split(shard.root, node);
+            shard.root = merge(merge(parts[0], node), parts[1]);
+        }
+        for (int i = index + 1; i < counts.length(); i += i & -i) {
+            counts.getAndIncrement(i);
+        }
+        return node;
+    }
+
+    private static int shardOf(HighScore score) {
+        return Math.min(SHARDS - 1, Math.max(0, score.getTimeMillis() / SHARD_MILLIS));
+    }
+
+    // Method to count the scores in every shard before the given one
+    private long prefixCount(int shard) {
+        long count = 0;
+        for (int i = shard; i > 0; i -= i & -i) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    // Method to find the shard holding the entry at the given offset, by descending the Fenwick tree
+    private int findShard(long offset) {
+        int position = 0;
+        for (int step = Integer.highestOneBit(SHARDS); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= SHARDS && counts.get(next) <= offset) {
+                position = next;
+                offset -= counts.get(next);
+            }
+        }
+        return position; // Shards 0 to position - 1 hold at most offset entries
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+        return node;
+    }
+
+    // Method to split a treap into the nodes ordered before key and the rest
+    private static Node[] split(Node node, Node key) {
+        if (node == null) {
+            return new Node[2];
+        }
+        if (ORDER.compare(node, key) < 0) {
+            Node[] parts = split(node.right, key);
+            node.right = parts[0];
+            parts[0] = update(node);
+            return parts;
+        }
+        Node[] parts = split(node.left, key);
+        node.left = parts[1];
+        parts[1] = update(node);
+        return parts;
+    }
+
+    // Method to join two treaps where every node of the first is ordered before every node of the second
+    private static Node merge(Node first, Node second) {
+        if (first == null || second == null) {
+            return first != null ? first : second;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            return update(first);
+        }
+        second.left = merge(first, second.left);
+        return update(second);
+    }
+
+    private static long countBetter(Node node, HighScore score) {
+        long count = 0;
+        while (node != null) {
+            if (HighScore.RANKING.compare(node.score, score) < 0) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Method to count the nodes ordered before key, equal scores added earlier included
+    private static long countBefore(Node node, Node key) {
+        long count = 0;
+        while (node != null) {
+            if (ORDER.compare(node, key) < 0) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    // Method to count the scores equal to the given one that come before it, given where the equal scores start.
+    // Ties need the same time and moves, so there are rarely more than a few to walk through
+    private static int countEqualBefore(Node root, int firstEqual, HighScore score) {
+        for (int index = firstEqual; index < size(root); index++) {
+            HighScore other = select(root, index).score;
+            if (HighScore.RANKING.compare(other, score) != 0) {
+                break;
+            }
+            if (other == score || other.getName().equals(score.getName()) && other.getSeed() == score.getSeed()
+                    && other.getParMoves() == score.getParMoves()) {
+                return index - firstEqual;
+            }
+        }
+        return 0;
+    }
+
+    private static Node select(Node node, int index) {
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Window that pages through the whole leaderboard. The table has a row for every score, but a page of PAGE_SIZE
+// scores is only fetched from the Leaderboard when one of its rows is drawn, and only the last CACHED_PAGES pages
+// are kept, so opening it costs the same with a hundred scores or a million.
+class LeaderboardDialog extends JDialog {
+    private static final int PAGE_SIZE = 50;
+    private static final int CACHED_PAGES = 8;
+    private static final String[] COLUMNS = {"#", "Name", "Time (s)", "Moves", "Par"};
+
+    // Table model that loads pages on demand
+    private static final class PagedModel extends AbstractTableModel {
+        private final Leaderboard leaderboard;
+        private final int rows;
+        private final Map<Integer, List<HighScore>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<HighScore>> eldest) {
+                return size() > CACHED_PAGES; // Least recently drawn pages are dropped first
+            }
+        };
+
+        PagedModel(Leaderboard leaderboard) {
+            this.leaderboard = leaderboard;
+            this.rows = (int) Math.min(Integer.MAX_VALUE, leaderboard.size());
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            List<HighScore> page = pages.computeIfAbsent(row / PAGE_SIZE, n -> leaderboard.page(n, PAGE_SIZE));
+            if (row % PAGE_SIZE >= page.size()) {
+                return ""; // The table shrank after it was opened, e.g. after another process compacted it
+            }
+            HighScore score = page.get(row % PAGE_SIZE);
+            return switch (column) {
+                case 0 -> row + 1;
+                case 1 -> score.getName();
+                case 2 -> GameClock.format(score.getTimeMillis());
+                case 3 -> score.getMoves();
+                default -> score.getParMoves() > 0 ? score.getParMoves() : "";
+            };
+        }
+    }
+
+    // highlightRank selects and scrolls to that row, counting from 1; 0 shows the top of the table
+    public LeaderboardDialog(Frame owner, Leaderboard leaderboard, int highlightRank) {
+        super(owner, "High Scores", true);
+        PagedModel model = new PagedModel(leaderboard);
+        JTable table = new JTable(model);
+        table.setFillsViewportHeight(true);
+        table.getColumnModel().getColumn(1).setPreferredWidth(200);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JLabel summary = new JLabel(highlightRank > 0
+                ? "Your score is number " + highlightRank + " of " + model.getRowCount()
+                : model.getRowCount() + " scores", SwingConstants.CENTER);
+        add(summary, BorderLayout.NORTH);
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        JPanel buttons = new JPanel();
+        buttons.add(closeButton);
+        add(buttons, BorderLayout.SOUTH);
+
+        setSize(500, 450);
+        setLocationRelativeTo(owner);
+        if (highlightRank > 0 && highlightRank <= model.getRowCount()) {
+            table.setRowSelectionInterval(highlightRank - 1, highlightRank - 1);
+            table.scrollRectToVisible(table.getCellRect(highlightRank - 1, 0, true));
+        }
+    }
+}
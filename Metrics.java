@@ -0,0 +1,111 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide registry of counters and latency histograms. Code that is measured looks its metrics up once and
+// keeps the handle in a static field, so recording is a single LongAdder or histogram update on the hot path.
+// The registry can be written out in the Prometheus text exposition format.
+class Metrics {
+    private static final Metrics SHARED = new Metrics();
+    // Histogram buckets published to Prometheus, in seconds
+    private static final double[] EXPORTED_BUCKETS = {
+            0.00001, 0.00005, 0.0001, 0.0005, 0.001, 0.005, 0.01, 1.0 / 60, 0.05, 0.1, 0.5, 1, 5};
+
+    // A monotonically increasing count
+    static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    private static final class Metric {
+        final String help;
+        final Counter counter;
+        final LatencyHistogram histogram;
+
+        Metric(String help, Counter counter, LatencyHistogram histogram) {
+            this.help = help;
+            this.counter = counter;
+            this.histogram = histogram;
+        }
+    }
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>(); // Sorted so exports are stable
+
+    public static Metrics shared() {
+        return SHARED;
+    }
+
+    // Method to get the counter with the given name, creating it on first use
+    public Counter counter(String name, String help) {
+        Metric metric = metrics.computeIfAbsent(name, key -> new Metric(help, new Counter(), null));
+        if (metric.counter == null) {
+            throw new IllegalArgumentException(name + " is already registered as a histogram");
+        }
+        return metric.counter;
+    }
+
+    // Method to get the histogram with the given name, creating it on first use; durations are exported in seconds
+    public LatencyHistogram histogram(String name, String help) {
+        Metric metric = metrics.computeIfAbsent(name, key -> new Metric(help, null, new LatencyHistogram()));
+        if (metric.histogram == null) {
+            throw new IllegalArgumentException(name + " is already registered as a counter");
+        }
+        return metric.histogram;
+    }
+
+    // Method to describe every metric in one short line each, for the debug overlay
+    public List<String> summaryLines() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            Metric metric = entry.getValue();
+            if (metric.counter != null) {
+                lines.add(entry.getKey() + ": " + metric.counter.get());
+            } else {
+                LatencyHistogram histogram = metric.histogram;
+                lines.add(String.format("%s: n=%d p50=%.3f ms p99=%.3f ms max=%.3f ms", entry.getKey(),
+                        histogram.getCount(), histogram.percentile(50) / 1e6, histogram.percentile(99) / 1e6,
+                        histogram.getMaxNanos() / 1e6));
+            }
+        }
+        return lines;
+    }
+
+    // Method to write every metric in the Prometheus text format
+    public void writePrometheus(Appendable out) throws IOException {
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            String name = entry.getKey();
+            Metric metric = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(metric.help).append('\n');
+            if (metric.counter != null) {
+                out.append("# TYPE ").append(name).append(" counter\n");
+                out.append(name).append(' ').append(Long.toString(metric.counter.get())).append('\n');
+                continue;
+            }
+            LatencyHistogram histogram = metric.histogram;
+            long count = histogram.getCount(); // Read first so no bucket can exceed it
+            out.append("# TYPE ").append(name).append(" histogram\n");
+            for (double bound : EXPORTED_BUCKETS) {
+                long atOrBelow = Math.min(count, histogram.countAtOrBelow((long) (bound * 1e9)));
+                out.append(name).append("_bucket{le=\"").append(Double.toString(bound)).append("\"} ")
+                        .append(Long.toString(atOrBelow)).append('\n');
+            }
+            out.append(name).append("_bucket{le=\"+Inf\"} ").append(Long.toString(count)).append('\n');
+            out.append(name).append("_sum ").append(Double.toString(histogram.getTotalNanos() / 1e9)).append('\n');
+            out.append(name).append("_count ").append(Long.toString(count)).append('\n');
+        }
+    }
+}
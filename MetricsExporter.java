@@ -0,0 +1,78 @@
+import javax.swing.*;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Background jobs around the metrics registry, on one daemon thread:
+// - every PROBE_MILLIS, posts an empty task to the EDT and records how long it waited to run, which shows EDT stalls;
+// - every exportSeconds, writes all metrics to a file in the Prometheus text format. The file is written next to
+//   its target and renamed over it, so a collector such as the node exporter textfile collector never reads half a file.
+class MetricsExporter {
+    private static final long PROBE_MILLIS = 100;
+    private static final long STALL_NANOS = 100_000_000L; // An EDT that takes longer than this to respond is stalled
+
+    private static final LatencyHistogram EDT_DELAY = Metrics.shared().histogram(
+            "treasure_edt_delay_seconds", "Time a task posted to the Swing event thread waited before it ran");
+    private static final Metrics.Counter EDT_STALLS = Metrics.shared().counter(
+            "treasure_edt_stalls_total", "EDT probes that waited longer than 100 ms");
+
+    private final Path file;
+    private final long exportSeconds;
+    private final AtomicBoolean probePending = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public MetricsExporter(String path, long exportSeconds) {
+        this.file = Paths.get(path);
+        this.exportSeconds = exportSeconds;
+    }
+
+    public void start() {
+        scheduler.scheduleAtFixedRate(this::probeEdt, PROBE_MILLIS, PROBE_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::export, exportSeconds, exportSeconds, TimeUnit.SECONDS);
+    }
+
+    // Method to measure how long the EDT takes to pick up a task; only one probe is in flight at a time
+    private void probeEdt() {
+        if (!probePending.compareAndSet(false, true)) {
+            return; // The last probe is still waiting, so the EDT is stalled; its delay is recorded when it runs
+        }
+        long posted = System.nanoTime();
+        SwingUtilities.invokeLater(() -> {
+            long delay = System.nanoTime() - posted;
+            EDT_DELAY.record(delay);
+            if (delay > STALL_NANOS) {
+                EDT_STALLS.increment();
+            }
+            probePending.set(false);
+        });
+    }
+
+    // Method to write the current metrics to the export file
+    public void export() {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                Metrics.shared().writePrometheus(out);
+                Runtime runtime = Runtime.getRuntime();
+                out.write("# HELP treasure_jvm_heap_used_bytes Heap in use when the metrics were written\n");
+                out.write("# TYPE treasure_jvm_heap_used_bytes gauge\n");
+                out.write("treasure_jvm_heap_used_bytes " + (runtime.totalMemory() - runtime.freeMemory()) + "\n");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
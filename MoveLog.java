@@ -0,0 +1,202 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Record of one game: the engine settings and board seed, then every move as a 2-bit direction packed 32 to a
+// long, plus the time of each move. Moves that were blocked by the edge of the grid change nothing and are not
+// recorded. Since boards are generated from their seed, replaying the directions on a fresh engine reproduces the
+// game exactly, which lets a score be checked without trusting the client that submitted it.
+//
+// Serialized form: settings and move count as varints, the seed, the directions packed 4 to a byte and each
+// move's time as a varint delta in milliseconds from the previous move; a typical game takes well under 100 bytes.
+class MoveLog {
+    // 2-bit direction codes
+    public static final int UP = 0;
+    public static final int DOWN = 1;
+    public static final int LEFT = 2;
+    public static final int RIGHT = 3;
+    private static final int MOVES_PER_LONG = 32;
+    private static final int TIME_TOLERANCE_MILLIS = 1000; // Scores from before millisecond timing were whole seconds
+
+    private final int rows, cols, treasureCount, minObstaclePercent, maxObstaclePercent;
+    private final long seed;
+    private long[] directions = new long[2];
+    private long[] millis = new long[64]; // Time of each move since the game started
+    private int count;
+
+    // Method to start a log for the game the engine has just started
+    public MoveLog(GameEngine engine) {
+        this(engine.getBoard().getRows(), engine.getBoard().getCols(), engine.getTreasureCount(),
+                engine.getMinObstaclePercent(), engine.getMaxObstaclePercent(), engine.getSeed());
+    }
+
+    private MoveLog(int rows, int cols, int treasureCount, int minObstaclePercent, int maxObstaclePercent, long seed) {
+        this.rows = rows;
+        this.cols = cols;
+        this.treasureCount = treasureCount;
+        this.minObstaclePercent = minObstaclePercent;
+        this.maxObstaclePercent = maxObstaclePercent;
+        this.seed = seed;
+    }
+
+    // Method to record a move by (dx, dy), made the given number of milliseconds after the game started
+    public void record(int dx, int dy, long elapsedMillis) {
+        if (count == millis.length) {
+            millis = Arrays.copyOf(millis, count * 2);
+        }
+        if (count == directions.length * MOVES_PER_LONG) {
+            directions = Arrays.copyOf(directions, directions.length * 2);
+        }
+        directions[count / MOVES_PER_LONG] |= (long) direction(dx, dy) << (2 * (count % MOVES_PER_LONG));
+        millis[count] = Math.max(elapsedMillis, count > 0 ? millis[count - 1] : 0); // Times never go backwards
+        count++;
+    }
+
+    // Method to copy the log so far, e.g. so another thread can save it while the game goes on
+    public MoveLog copy() {
+        MoveLog copy = new MoveLog(rows, cols, treasureCount, minObstaclePercent, maxObstaclePercent, seed);
+        copy.directions = Arrays.copyOf(directions, Math.max(1, (count + MOVES_PER_LONG - 1) / MOVES_PER_LONG));
+        copy.millis = Arrays.copyOf(millis, Math.max(1, count));
+        copy.count = count;
+        return copy;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int direction(int move) {
+        return (int) (directions[move / MOVES_PER_LONG] >>> (2 * (move % MOVES_PER_LONG))) & 3;
+    }
+
+    public long getMillis(int move) {
+        return millis[move];
+    }
+
+    public static int dx(int direction) {
+        return direction == UP ? -1 : direction == DOWN ? 1 : 0;
+    }
+
+    public static int dy(int direction) {
+        return direction == LEFT ? -1 : direction == RIGHT ? 1 : 0;
+    }
+
+    private static int direction(int dx, int dy) {
+        if (Math.abs(dx) + Math.abs(dy) != 1) {
+            throw new IllegalArgumentException("Not a single step: " + dx + ", " + dy);
+        }
+        return dx < 0 ? UP : dx > 0 ? DOWN : dy < 0 ? LEFT : RIGHT;
+    }
+
+    // Method to create an engine with the settings this game was played with
+    public GameEngine createEngine() {
+        return new GameEngine(rows, cols, treasureCount, minObstaclePercent, maxObstaclePercent, new SplittableRandom());
+    }
+
+    // Method to check whether the engine generates the same boards this game was played on
+    public boolean matches(GameEngine engine) {
+        return engine.getBoard().getRows() == rows && engine.getBoard().getCols() == cols
+                && engine.getTreasureCount() == treasureCount && engine.getMinObstaclePercent() == minObstaclePercent
+                && engine.getMaxObstaclePercent() == maxObstaclePercent;
+    }
+
+    // Method to re-simulate the whole game at full speed on an engine with matching settings; returns the outcome of
+    // the last move, or null if a recorded move could not have been made
+    public GameEngine.MoveOutcome replay(GameEngine engine) {
+        engine.newGame(seed);
+        GameEngine.MoveOutcome outcome = GameEngine.MoveOutcome.MOVED;
+        for (int move = 0; move < count; move++) {
+            if (engine.isFinished()) {
+                return null; // Moves after the end of the game
+            }
+            int direction = direction(move);
+            outcome = engine.move(dx(direction), dy(direction));
+            if (outcome == GameEngine.MoveOutcome.BLOCKED) {
+                return null;
+            }
+        }
+        return outcome;
+    }
+
+    // Method to check a submitted score against this log: same board, a win in exactly the claimed moves and a time
+    // consistent with the recorded timestamps
+    public boolean verifies(HighScore score, GameEngine engine) {
+        if (score.getSeed() != seed || score.getMoves() != count || count == 0 || !matches(engine)) {
+            return false;
+        }
+        return Math.abs(millis[count - 1] - score.getTimeMillis()) <= TIME_TOLERANCE_MILLIS
+                && replay(engine) == GameEngine.MoveOutcome.WON;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        writeVarint(out, rows);
+        writeVarint(out, cols);
+        writeVarint(out, treasureCount);
+        writeVarint(out, minObstaclePercent);
+        writeVarint(out, maxObstaclePercent);
+        out.writeLong(seed);
+        writeVarint(out, count);
+        for (int offset = 0; offset < count; offset += 4) {
+            int packed = (int) (directions[offset / MOVES_PER_LONG] >>> (2 * (offset % MOVES_PER_LONG))) & 0xFF;
+            out.writeByte(packed); // Bits past the last move are always zero
+        }
+        long previous = 0;
+        for (int move = 0; move < count; move++) {
+            writeVarint(out, millis[move] - previous);
+            previous = millis[move];
+        }
+    }
+
+    public static MoveLog read(DataInput in) throws IOException {
+        MoveLog log = new MoveLog((int) readVarint(in), (int) readVarint(in), (int) readVarint(in),
+                (int) readVarint(in), (int) readVarint(in), in.readLong());
+        int count = (int) readVarint(in);
+        log.directions = new long[Math.max(1, (count + MOVES_PER_LONG - 1) / MOVES_PER_LONG)];
+        log.millis = new long[Math.max(1, count)];
+        for (int offset = 0; offset < count; offset += 4) {
+            log.directions[offset / MOVES_PER_LONG] |= (long) in.readUnsignedByte() << (2 * (offset % MOVES_PER_LONG));
+        }
+        long time = 0;
+        for (int move = 0; move < count; move++) {
+            time += readVarint(in);
+            log.millis[move] = time;
+        }
+        log.count = count;
+        return log;
+    }
+
+    // Method to read just the seed from the start of a serialized log, e.g. to pick out games without decoding them
+    public static long readSeed(DataInput in) throws IOException {
+        for (int setting = 0; setting < 5; setting++) {
+            readVarint(in);
+        }
+        return in.readLong();
+    }
+
+    // Unsigned LEB128: 7 bits per byte, high bit set on every byte but the last
+    private static void writeVarint(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int next = in.readUnsignedByte();
+            value |= (long) (next & 0x7F) << shift;
+            if ((next & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
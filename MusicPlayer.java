@@ -0,0 +1,159 @@
+import javax.sound.sampled.*;
+import java.io.File;
+import java.io.IOException;
+
+// Background music player that streams a file instead of decoding it all into a Clip.
+// A low-priority feeder thread decodes the file into a fixed-size ring buffer and reopens it at the end of the
+// track, so looping has no gap; a playback thread drains the ring buffer into a SourceDataLine.
+// Memory use is the ring buffer plus the line's own buffer, no matter how long the track is.
+class MusicPlayer {
+    private static final int RING_BYTES = 1 << 17; // About 0.7 seconds of 44.1 kHz 16-bit stereo
+    private static final int CHUNK_BYTES = 1 << 12;
+
+    private final File file;
+    private final AudioFormat format;
+    private final SourceDataLine line;
+    private final FloatControl gain;
+    private final byte[] ring = new byte[RING_BYTES];
+    private int readPosition, writePosition, buffered; // Guarded by this
+    private volatile boolean paused;
+    private volatile boolean closed;
+
+    public MusicPlayer(File file) throws UnsupportedAudioFileException, IOException, LineUnavailableException {
+        this.file = file;
+        try (AudioInputStream probe = AudioSystem.getAudioInputStream(file)) {
+            format = pcmFormat(probe.getFormat());
+        }
+        line = AudioSystem.getSourceDataLine(format);
+        line.open(format);
+        gain = line.isControlSupported(FloatControl.Type.MASTER_GAIN)
+                ? (FloatControl) line.getControl(FloatControl.Type.MASTER_GAIN)
+                : null;
+    }
+
+    // Method to start decoding and playing the track in a continuous loop
+    public void start() {
+        Thread feeder = new Thread(this::feed, "music-feeder");
+        feeder.setDaemon(true);
+        feeder.setPriority(Thread.MIN_PRIORITY);
+        Thread playback = new Thread(this::play, "music-playback");
+        playback.setDaemon(true);
+        feeder.start();
+        playback.start();
+        line.start();
+    }
+
+    public void pause() {
+        paused = true;
+        line.stop();
+    }
+
+    public void resume() {
+        paused = false;
+        line.start();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    // Method to set the volume from 0 (silent) to 1 (full); ignored if the line has no gain control
+    public void setVolume(float volume) {
+        float level = Math.max(0f, Math.min(1f, volume));
+        if (gain != null) {
+            float decibels = level == 0f ? gain.getMinimum() : (float) (20 * Math.log10(level));
+            gain.setValue(Math.max(gain.getMinimum(), Math.min(gain.getMaximum(), decibels)));
+        }
+    }
+
+    // Method to stop both threads and release the audio line
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            notifyAll();
+        }
+        line.close();
+    }
+
+    // Feeder thread: decode the file over and over into the ring buffer
+    private void feed() {
+        byte[] chunk = new byte[CHUNK_BYTES - CHUNK_BYTES % format.getFrameSize()];
+        while (!closed) {
+            long bytesThisPass = 0;
+            try (AudioInputStream stream = openStream()) {
+                int read;
+                while (!closed && (read = stream.read(chunk)) > 0) {
+                    write(chunk, read);
+                    bytesThisPass += read;
+                }
+            } catch (IOException | UnsupportedAudioFileException | InterruptedException e) {
+                e.printStackTrace();
+                return;
+            }
+            if (bytesThisPass == 0) {
+                return; // Empty track, nothing to loop
+            }
+        }
+    }
+
+    // Playback thread: move decoded audio from the ring buffer to the line
+    private void play() {
+        byte[] chunk = new byte[CHUNK_BYTES - CHUNK_BYTES % format.getFrameSize()];
+        try {
+            while (!closed) {
+                int read = read(chunk);
+                if (read > 0) {
+                    line.write(chunk, 0, read); // Blocks while the line is paused or full
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void write(byte[] chunk, int length) throws InterruptedException {
+        int offset = 0;
+        while (offset < length && !closed) {
+            while (buffered == RING_BYTES && !closed) {
+                wait();
+            }
+            int count = Math.min(length - offset, Math.min(RING_BYTES - buffered, RING_BYTES - writePosition));
+            System.arraycopy(chunk, offset, ring, writePosition, count);
+            writePosition = (writePosition + count) % RING_BYTES;
+            buffered += count;
+            offset += count;
+            notifyAll();
+        }
+    }
+
+    private synchronized int read(byte[] chunk) throws InterruptedException {
+        while (buffered == 0 && !closed) {
+            wait();
+        }
+        int frameSize = format.getFrameSize();
+        int count = Math.min(chunk.length, buffered);
+        count -= count % frameSize;
+        int first = Math.min(count, RING_BYTES - readPosition);
+        System.arraycopy(ring, readPosition, chunk, 0, first);
+        System.arraycopy(ring, 0, chunk, first, count - first);
+        readPosition = (readPosition + count) % RING_BYTES;
+        buffered -= count;
+        notifyAll();
+        return count;
+    }
+
+    private AudioInputStream openStream() throws UnsupportedAudioFileException, IOException {
+        AudioInputStream stream = AudioSystem.getAudioInputStream(file);
+        return stream.getFormat().matches(format) ? stream : AudioSystem.getAudioInputStream(format, stream);
+    }
+
+    // Method to pick a PCM format the line can play, converting compressed encodings to 16-bit signed PCM
+    private static AudioFormat pcmFormat(AudioFormat source) {
+        AudioFormat.Encoding encoding = source.getEncoding();
+        if (encoding.equals(AudioFormat.Encoding.PCM_SIGNED) || encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED)) {
+            return source;
+        }
+        return new AudioFormat(AudioFormat.Encoding.PCM_SIGNED, source.getSampleRate(), 16,
+                source.getChannels(), source.getChannels() * 2, source.getSampleRate(), false);
+    }
+}
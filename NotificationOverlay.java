@@ -0,0 +1,70 @@
+import javax.swing.*;
+import java.awt.*;
+
+// Non-modal message banner drawn over the frame as its glass pane. A message stays up for a short time and is
+// replaced by the next one, so game events never block the EDT the way a JOptionPane does. The overlay has no
+// mouse or key listeners, so input still goes to the components underneath.
+class NotificationOverlay extends JComponent {
+    public static final Color INFO = new Color(30, 110, 40);
+    public static final Color WARNING = new Color(170, 40, 30);
+    private static final int SHOW_MILLIS = 1500;
+    private static final int PADDING = 12;
+    private static final int TOP_MARGIN = 40;
+
+    private final Timer hideTimer = new Timer(SHOW_MILLIS, e -> hideMessage());
+    private String message;
+    private Color color;
+
+    public NotificationOverlay() {
+        setOpaque(false);
+        setFont(new Font("Arial", Font.BOLD, 18));
+        hideTimer.setRepeats(false);
+    }
+
+    // Method to show a message for a short time, replacing any message already showing
+    public void showMessage(String text, Color background) {
+        repaint(bannerBounds()); // Old banner
+        message = text;
+        color = background;
+        setVisible(true);
+        repaint(bannerBounds());
+        hideTimer.restart();
+    }
+
+    // Method to remove the current message straight away
+    public void hideMessage() {
+        hideTimer.stop();
+        if (message != null) {
+            repaint(bannerBounds());
+            message = null;
+        }
+        setVisible(false);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (message == null) {
+            return;
+        }
+        Rectangle bounds = bannerBounds();
+        Graphics2D g2 = (Graphics2D) g.create();
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setColor(color);
+        g2.fillRoundRect(bounds.x, bounds.y, bounds.width, bounds.height, PADDING, PADDING);
+        g2.setColor(Color.WHITE);
+        FontMetrics metrics = g2.getFontMetrics();
+        g2.drawString(message, bounds.x + PADDING, bounds.y + PADDING + metrics.getAscent());
+        g2.dispose();
+    }
+
+    // Banner centred near the top of the frame, sized to the message
+    private Rectangle bannerBounds() {
+        if (message == null) {
+            return new Rectangle();
+        }
+        FontMetrics metrics = getFontMetrics(getFont());
+        int width = metrics.stringWidth(message) + 2 * PADDING;
+        int height = metrics.getHeight() + 2 * PADDING;
+        return new Rectangle((getWidth() - width) / 2, TOP_MARGIN, width, height);
+    }
+}
@@ -0,0 +1,139 @@
+// Keeps every free cell of the board connected while obstacles are added one at a time.
+// Starting from a board with no obstacles, each obstacle is only accepted if the free cells around it stay
+// connected, so the player can always reach every treasure without re-running a BFS over the whole board.
+class ReachabilityEngine {
+    // Maximum number of cells the fallback search may visit before an obstacle is rejected
+    private static final int SEARCH_BUDGET = 256;
+
+    private final GameBoard board;
+    private final int rows;
+    private final int cols;
+    private final int[] visitedStamp;
+    private final int[] queue = new int[SEARCH_BUDGET + 4];
+    private int stamp;
+    private int searches; // Fallback searches since the last call to takeSearchCount
+
+    public ReachabilityEngine(GameBoard board) {
+        this.board = board;
+        this.rows = board.getRows();
+        this.cols = board.getCols();
+        this.visitedStamp = new int[board.size()];
+    }
+
+    // Method to place an obstacle on the given cell if doing so keeps all free cells connected
+    public boolean tryPlaceObstacle(int index) {
+        if (board.get(index) != GameBoard.EMPTY) {
+            return false;
+        }
+        board.set(index, GameBoard.OBSTACLE);
+        if (staysConnected(board.rowOf(index), board.colOf(index))) {
+            return true;
+        }
+        board.set(index, GameBoard.EMPTY); // Remove the obstacle if it would cut the board in two
+        return false;
+    }
+
+    // Method to get the number of fallback searches run since the last call, and start counting again
+    public int takeSearchCount() {
+        int count = searches;
+        searches = 0;
+        return count;
+    }
+
+    // Method to check that the free orthogonal neighbours of a newly blocked cell are still joined
+    private boolean staysConnected(int x, int y) {
+        // Orthogonal neighbours in clockwise order: up, right, down, left
+        boolean up = isFree(x - 1, y);
+        boolean right = isFree(x, y + 1);
+        boolean down = isFree(x + 1, y);
+        boolean left = isFree(x, y - 1);
+
+        // Each neighbour starts in its own group; neighbours joined through a free diagonal share a group
+        int[] group = {0, 1, 2, 3};
+        boolean[] free = {up, right, down, left};
+        if (up && right && isFree(x - 1, y + 1)) group[1] = group[0];
+        if (right && down && isFree(x + 1, y + 1)) group[2] = group[1];
+        if (down && left && isFree(x + 1, y - 1)) group[3] = group[2];
+        if (left && up && isFree(x - 1, y - 1)) {
+            int from = group[3];
+            int to = group[0];
+            for (int i = 0; i < 4; i++) {
+                if (group[i] == from) group[i] = to;
+            }
+        }
+
+        int first = -1;
+        boolean local = true;
+        for (int i = 0; i < 4; i++) {
+            if (free[i]) {
+                if (first == -1) {
+                    first = group[i];
+                } else if (group[i] != first) {
+                    local = false;
+                }
+            }
+        }
+        if (local) {
+            return true; // The ring of neighbours around the cell already connects everything
+        }
+        searches++;
+        return neighboursJoined(x, y, free);
+    }
+
+    // Method to search around the blocked cell for a path linking all of its free neighbours
+    private boolean neighboursJoined(int x, int y, boolean[] free) {
+        int[] neighbourX = {x - 1, x, x + 1, x};
+        int[] neighbourY = {y, y + 1, y, y - 1};
+        int targets = 0;
+        int start = -1;
+        for (int i = 0; i < 4; i++) {
+            if (free[i]) {
+                targets++;
+                if (start == -1) {
+                    start = neighbourX[i] * cols + neighbourY[i];
+                }
+            }
+        }
+
+        if (++stamp == 0) {
+            java.util.Arrays.fill(visitedStamp, 0);
+            stamp = 1;
+        }
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visitedStamp[start] = stamp;
+        int found = 0;
+        int visited = 1;
+
+        while (head < tail) {
+            int current = queue[head++];
+            int cx = current / cols;
+            int cy = current % cols;
+            if (Math.abs(cx - x) + Math.abs(cy - y) == 1 && ++found == targets) {
+                return true;
+            }
+            for (int d = 0; d < 4; d++) {
+                int nx = cx + (d == 0 ? -1 : d == 2 ? 1 : 0);
+                int ny = cy + (d == 1 ? 1 : d == 3 ? -1 : 0);
+                if (!isFree(nx, ny)) {
+                    continue;
+                }
+                int index = nx * cols + ny;
+                if (visitedStamp[index] != stamp) {
+                    if (visited == SEARCH_BUDGET) {
+                        return false; // Too far to prove the neighbours are still joined, so reject the obstacle
+                    }
+                    visitedStamp[index] = stamp;
+                    queue[tail++] = index;
+                    visited++;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isFree(int x, int y) {
+        return x >= 0 && x < rows && y >= 0 && y < cols && board.get(x * cols + y) != GameBoard.OBSTACLE;
+    }
+}
@@ -0,0 +1,165 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Append-only file of recorded games. Each entry is a 4-byte length followed by a serialized MoveLog, written
+// with a single append and sync so a crash can only lose or truncate the last entry, which readers skip.
+// Run by hand to re-simulate and check every stored game, and optionally every high score that has a recorded game:
+// java ReplayStore <replays file> [high score store base path]
+class ReplayStore {
+    private final Path file;
+
+    // Called with each complete entry in file order; only the first length bytes of entry are valid
+    private interface EntryVisitor {
+        void visit(byte[] entry, int length) throws IOException;
+    }
+
+    public ReplayStore(String path) {
+        this.file = Paths.get(path);
+    }
+
+    // Method to append one game to the file
+    public synchronized void append(MoveLog log) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // Length, filled in below
+        log.write(out);
+        ByteBuffer entry = ByteBuffer.wrap(bytes.toByteArray());
+        entry.putInt(0, entry.capacity() - 4);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            while (entry.hasRemaining()) {
+                channel.write(entry);
+            }
+            channel.force(false);
+        }
+    }
+
+    // Method to find the most recent game played on each of the given seeds in a single pass over the file. Only
+    // the seed of each entry is decoded unless it is one of those wanted; seeds with no game are left out.
+    public synchronized Map<Long, MoveLog> findLatest(Set<Long> seeds) throws IOException {
+        Map<Long, MoveLog> found = new HashMap<>();
+        if (!seeds.isEmpty()) {
+            forEachEntry((entry, length) -> {
+                long seed = MoveLog.readSeed(new DataInputStream(new ByteArrayInputStream(entry, 0, length)));
+                if (seeds.contains(seed)) {
+                    found.put(seed, MoveLog.read(new DataInputStream(new ByteArrayInputStream(entry, 0, length))));
+                }
+            });
+        }
+        return found;
+    }
+
+    // Method to read every complete entry in the file
+    public synchronized List<MoveLog> readAll() throws IOException {
+        List<MoveLog> logs = new ArrayList<>();
+        forEachEntry((entry, length) ->
+                logs.add(MoveLog.read(new DataInputStream(new ByteArrayInputStream(entry, 0, length)))));
+        return logs;
+    }
+
+    // Method to stream through the file, reusing one buffer for the entries
+    private void forEachEntry(EntryVisitor visitor) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        byte[] entry = new byte[256];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length > entry.length) {
+                    entry = new byte[Math.max(length, entry.length * 2)];
+                }
+                try {
+                    in.readFully(entry, 0, length);
+                } catch (EOFException e) {
+                    break; // Truncated by a crash while appending
+                }
+                visitor.visit(entry, length);
+            }
+        }
+    }
+
+    public long sizeInBytes() throws IOException {
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    // Method to replay every stored game at full speed and report how many were valid wins
+    public static void main(String[] args) throws IOException {
+        ReplayStore store = new ReplayStore(args.length > 0 ? args[0] : "src/ICS4U/FinalProject/replays.dat");
+        List<MoveLog> logs = store.readAll();
+        GameEngine engine = null;
+        int wins = 0;
+        long moves = 0;
+        long start = System.nanoTime();
+        for (MoveLog log : logs) {
+            if (engine == null || !log.matches(engine)) {
+                engine = log.createEngine();
+            }
+            if (log.replay(engine) == GameEngine.MoveOutcome.WON) {
+                wins++;
+            }
+            moves += log.size();
+        }
+        double micros = (System.nanoTime() - start) / 1e3;
+        System.out.printf("games: %d, valid wins: %d, moves: %d%n", logs.size(), wins, moves);
+        System.out.printf("replayed in %.0f us (%.1f us per game), %.1f bytes per game%n",
+                micros, micros / Math.max(1, logs.size()), (double) store.sizeInBytes() / Math.max(1, logs.size()));
+        if (args.length > 1) {
+            verifyScores(logs, args[1]);
+        }
+    }
+
+    // Method to check every high score played on a recorded board against the games recorded for it: the same
+    // board, a win in exactly the claimed moves and a time that matches the log
+    private static void verifyScores(List<MoveLog> logs, String scoresBasePath) {
+        Map<Long, List<MoveLog>> bySeed = new HashMap<>();
+        for (MoveLog log : logs) {
+            bySeed.computeIfAbsent(log.getSeed(), seed -> new ArrayList<>()).add(log);
+        }
+        HighScoreStore scores = new HighScoreStore(scoresBasePath);
+        scores.load();
+        GameEngine engine = null;
+        int recorded = 0;
+        List<HighScore> unverified = new ArrayList<>();
+        for (HighScore score : scores.top(Integer.MAX_VALUE)) {
+            List<MoveLog> games = bySeed.get(score.getSeed());
+            if (games == null) {
+                continue; // No recorded game, e.g. a score from before games were recorded
+            }
+            recorded++;
+            boolean verified = false;
+            for (MoveLog log : games) {
+                if (engine == null || !log.matches(engine)) {
+                    engine = log.createEngine();
+                }
+                if (log.verifies(score, engine)) {
+                    verified = true;
+                    break;
+                }
+            }
+            if (!verified) {
+                unverified.add(score);
+            }
+        }
+        System.out.printf("scores with a recorded game: %d, verified: %d%n", recorded, recorded - unverified.size());
+        for (HighScore score : unverified) {
+            System.out.printf("  not verified: %s %s s %d moves%n", score.getName(),
+                    GameClock.format(score.getTimeMillis()), score.getMoves());
+        }
+    }
+}
@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Computes par for a board: the fewest moves needed to walk from the player's start to every treasure while
+// avoiding obstacles. Distances between the player and the treasures come from one BFS per point of interest;
+// the visiting order is then solved exactly with Held-Karp dynamic programming over treasure bitmasks, or with
+// nearest-neighbour plus 2-opt when there are too many treasures for the exact table.
+class RouteSolver {
+    public static final int EXACT_LIMIT = 16; // Largest treasure count solved exactly (2^16 x 16 table)
+    private static final int UNREACHABLE = Integer.MAX_VALUE / 4;
+    private static final LatencyHistogram SOLVE = Metrics.shared().histogram(
+            "treasure_route_solve_seconds", "Time to compute par moves for a board that was not cached");
+
+    private final Map<Long, Integer> cache;
+
+    // Results are cached per board key, keeping at most cacheSize boards. A seed is a good key as long as every board
+    // passed to one solver is generated with the same settings
+    public RouteSolver(int cacheSize) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // Method to get the par moves for a freshly generated board, reusing the cached answer for a known key
+    public int parMoves(long key, GameBoard board) {
+        synchronized (cache) {
+            Integer cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        long start = System.nanoTime();
+        int par = shortestTour(board);
+        SOLVE.recordSince(start);
+        synchronized (cache) {
+            cache.put(key, par);
+        }
+        return par;
+    }
+
+    // Method to find the shortest walk from the player through every treasure, or -1 if a treasure is unreachable
+    public static int shortestTour(GameBoard board) {
+        int player = -1;
+        int treasureCount = 0;
+        for (int cell = 0; cell < board.size(); cell++) {
+            byte value = board.get(cell);
+            if (value == GameBoard.PLAYER) {
+                player = cell;
+            } else if (value == GameBoard.TREASURE) {
+                treasureCount++;
+            }
+        }
+        if (player < 0) {
+            throw new IllegalArgumentException("Board has no player");
+        }
+        if (treasureCount == 0) {
+            return 0;
+        }
+
+        // Points of interest: index 0 is the player, 1..n are the treasures
+        int[] points = new int[treasureCount + 1];
+        points[0] = player;
+        for (int cell = 0, next = 1; cell < board.size(); cell++) {
+            if (board.get(cell) == GameBoard.TREASURE) {
+                points[next++] = cell;
+            }
+        }
+        int[][] distance = pairwiseDistances(board, points);
+        for (int i = 1; i < points.length; i++) {
+            if (distance[0][i] >= UNREACHABLE) {
+                return -1;
+            }
+        }
+        return treasureCount <= EXACT_LIMIT ? heldKarp(distance) : nearestNeighbourTwoOpt(distance);
+    }
+
+    // Method to run one BFS per point of interest and record the distance to every other point
+    private static int[][] pairwiseDistances(GameBoard board, int[] points) {
+        int[][] distance = new int[points.length][points.length];
+        int[] steps = new int[board.size()];
+        int[] queue = new int[board.size()];
+        int rows = board.getRows();
+        int cols = board.getCols();
+        for (int from = 0; from < points.length; from++) {
+            Arrays.fill(steps, -1);
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = points[from];
+            steps[points[from]] = 0;
+            while (head < tail) {
+                int cell = queue[head++];
+                int x = cell / cols;
+                int y = cell % cols;
+                int next = steps[cell] + 1;
+                if (x > 0) tail = visit(board, steps, queue, tail, cell - cols, next);
+                if (x < rows - 1) tail = visit(board, steps, queue, tail, cell + cols, next);
+                if (y > 0) tail = visit(board, steps, queue, tail, cell - 1, next);
+                if (y < cols - 1) tail = visit(board, steps, queue, tail, cell + 1, next);
+            }
+            for (int to = 0; to < points.length; to++) {
+                distance[from][to] = steps[points[to]] < 0 ? UNREACHABLE : steps[points[to]];
+            }
+        }
+        return distance;
+    }
+
+    private static int visit(GameBoard board, int[] steps, int[] queue, int tail, int cell, int distance) {
+        if (steps[cell] < 0 && board.get(cell) != GameBoard.OBSTACLE) {
+            steps[cell] = distance;
+            queue[tail++] = cell;
+        }
+        return tail;
+    }
+
+    // Method to solve the visiting order exactly; best[mask][i] is the shortest walk covering mask and ending at i
+    private static int heldKarp(int[][] distance) {
+        int n = distance.length - 1;
+        int full = (1 << n) - 1;
+        int[][] best = new int[1 << n][n];
+        for (int[] row : best) {
+            Arrays.fill(row, UNREACHABLE);
+        }
+        for (int i = 0; i < n; i++) {
+            best[1 << i][i] = distance[0][i + 1];
+        }
+        for (int mask = 1; mask <= full; mask++) {
+            for (int last = 0; last < n; last++) {
+                int cost = best[mask][last];
+                if (cost >= UNREACHABLE || (mask & (1 << last)) == 0) {
+                    continue;
+                }
+                for (int next = 0; next < n; next++) {
+                    if ((mask & (1 << next)) == 0) {
+                        int nextMask = mask | (1 << next);
+                        int candidate = cost + distance[last + 1][next + 1];
+                        if (candidate < best[nextMask][next]) {
+                            best[nextMask][next] = candidate;
+                        }
+                    }
+                }
+            }
+        }
+        int shortest = UNREACHABLE;
+        for (int last = 0; last < n; last++) {
+            shortest = Math.min(shortest, best[full][last]);
+        }
+        return shortest;
+    }
+
+    // Method to approximate the visiting order for large treasure counts: greedy tour, then 2-opt until no gain
+    private static int nearestNeighbourTwoOpt(int[][] distance) {
+        int n = distance.length;
+        int[] tour = new int[n]; // tour[0] is the player and stays fixed
+        boolean[] used = new boolean[n];
+        used[0] = true;
+        for (int position = 1; position < n; position++) {
+            int from = tour[position - 1];
+            int closest = -1;
+            for (int candidate = 1; candidate < n; candidate++) {
+                if (!used[candidate] && (closest < 0 || distance[from][candidate] < distance[from][closest])) {
+                    closest = candidate;
+                }
+            }
+            tour[position] = closest;
+            used[closest] = true;
+        }
+
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    // Reverse tour[i..j]; the walk is open, so there is no edge after the last point
+                    int before = distance[tour[i - 1]][tour[i]] + (j + 1 < n ? distance[tour[j]][tour[j + 1]] : 0);
+                    int after = distance[tour[i - 1]][tour[j]] + (j + 1 < n ? distance[tour[i]][tour[j + 1]] : 0);
+                    if (after < before) {
+                        for (int left = i, right = j; left < right; left++, right--) {
+                            int swap = tour[left];
+                            tour[left] = tour[right];
+                            tour[right] = swap;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+
+        int length = 0;
+        for (int i = 1; i < n; i++) {
+            length += distance[tour[i - 1]][tour[i]];
+        }
+        return length;
+    }
+}
@@ -0,0 +1,70 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+// Benchmark for HighScoreStore under contention: starts N separate JVMs that all add scores to the same store,
+// like several kiosks sharing one high score file, then checks that no score was lost.
+// Run with: java ScoreWriterBenchmark [writers] [scores per writer]
+public class ScoreWriterBenchmark {
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--writer")) {
+            runWriter(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int scoresPerWriter = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+
+        Path directory = Files.createTempDirectory("highscores");
+        String base = directory.resolve("highscores").toString();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        String classPath = System.getProperty("java.class.path");
+
+        long start = System.nanoTime();
+        List<Process> processes = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            processes.add(new ProcessBuilder(java, "-cp", classPath, "ScoreWriterBenchmark",
+                    "--writer", base, String.valueOf(scoresPerWriter), String.valueOf(i))
+                    .redirectErrorStream(true)
+                    .start());
+        }
+        long batches = 0;
+        for (Process process : processes) {
+            String output = new String(process.getInputStream().readAllBytes()).trim();
+            if (process.waitFor() != 0) {
+                throw new IllegalStateException("Writer failed: " + output);
+            }
+            batches += Long.parseLong(output);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        HighScoreStore store = new HighScoreStore(base);
+        store.load();
+        int expected = writers * scoresPerWriter;
+        System.out.printf("writers: %d, scores: %d, stored: %d%s%n", writers, expected, store.size(),
+                store.size() == expected ? "" : "  <-- SCORES LOST");
+        System.out.printf("elapsed: %.2f s (including JVM start-up), throughput: %.0f scores/s%n", seconds, expected / seconds);
+        System.out.printf("batches (fsyncs): %d, average batch: %.1f scores%n", batches, (double) expected / batches);
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Child process: add scores as fast as possible, then print how many batches were written
+    private static void runWriter(String base, int scores, int writerId) throws IOException {
+        HighScoreStore store = new HighScoreStore(base);
+        store.load();
+        Random random = new Random(writerId);
+        for (int i = 0; i < scores; i++) {
+            store.add(new HighScore("writer" + writerId, random.nextInt(600_000), random.nextInt(400)));
+        }
+        store.flush();
+        System.out.println(store.getBatchesWritten());
+    }
+}
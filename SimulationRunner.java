@@ -0,0 +1,135 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+// Plays games headlessly through GameEngine on every core, to tune generation parameters such as the number of
+// treasures and the obstacle density. Each game is played by a bot that walks the shortest path to the nearest
+// treasure, so the reported move counts describe how long the generated boards are to solve.
+// Run with: java SimulationRunner [games] [rows] [cols] [treasures] [min obstacle %] [max obstacle %]
+public class SimulationRunner {
+    private static final int CHUNKS_PER_CORE = 8;
+
+    // Totals for a batch of games; merged across threads at the end
+    private static final class Stats {
+        long games;
+        long wins;
+        long moves;
+        long obstacles;
+        int minMoves = Integer.MAX_VALUE;
+        int maxMoves;
+
+        Stats merge(Stats other) {
+            games += other.games;
+            wins += other.wins;
+            moves += other.moves;
+            obstacles += other.obstacles;
+            minMoves = Math.min(minMoves, other.minMoves);
+            maxMoves = Math.max(maxMoves, other.maxMoves);
+            return this;
+        }
+    }
+
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        int rows = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int cols = args.length > 2 ? Integer.parseInt(args[2]) : rows;
+        int treasures = args.length > 3 ? Integer.parseInt(args[3]) : GameEngine.DEFAULT_TREASURES;
+        int minObstacles = args.length > 4 ? Integer.parseInt(args[4]) : GameEngine.DEFAULT_MIN_OBSTACLE_PERCENT;
+        int maxObstacles = args.length > 5 ? Integer.parseInt(args[5]) : GameEngine.DEFAULT_MAX_OBSTACLE_PERCENT;
+
+        int chunks = Runtime.getRuntime().availableProcessors() * CHUNKS_PER_CORE;
+        SplittableRandom root = new SplittableRandom();
+        SplittableRandom[] seeds = new SplittableRandom[chunks]; // One independent seed stream per chunk
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            seeds[chunk] = root.split();
+        }
+        long start = System.nanoTime();
+        Stats total = IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    long count = games / chunks + (chunk < games % chunks ? 1 : 0);
+                    return play(count, rows, cols, treasures, minObstacles, maxObstacles, seeds[chunk]);
+                })
+                .reduce(Stats::merge)
+                .orElseGet(Stats::new);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("board %dx%d, %d treasures, %d-%d%% obstacles, %d cores%n",
+                rows, cols, treasures, minObstacles, maxObstacles, Runtime.getRuntime().availableProcessors());
+        System.out.printf("games: %d in %.2f s (%.0f games/s)%n", total.games, seconds, total.games / seconds);
+        System.out.printf("won: %.2f%%, moves: avg %.1f, min %d, max %d, obstacles: avg %.1f%n",
+                100.0 * total.wins / total.games, (double) total.moves / total.games, total.minMoves, total.maxMoves,
+                (double) total.obstacles / total.games);
+    }
+
+    // Method to play a run of games on one thread, reusing the engine and the bot's buffers
+    private static Stats play(long games, int rows, int cols, int treasures, int minObstacles, int maxObstacles,
+                              SplittableRandom seeds) {
+        GameEngine engine = new GameEngine(rows, cols, treasures, minObstacles, maxObstacles, seeds);
+        GameBoard board = engine.getBoard();
+        int[] parent = new int[board.size()];
+        int[] queue = new int[board.size()];
+        int[] path = new int[board.size()];
+        Stats stats = new Stats();
+        for (long game = 0; game < games; game++) {
+            if (game > 0) {
+                engine.newGame();
+            }
+            GameEngine.MoveOutcome outcome = GameEngine.MoveOutcome.MOVED;
+            while (outcome != GameEngine.MoveOutcome.WON && outcome != GameEngine.MoveOutcome.HIT_OBSTACLE) {
+                int steps = pathToNearestTreasure(engine, parent, queue, path);
+                if (steps == 0) {
+                    break; // No treasure reachable; cannot happen with the reachability engine
+                }
+                for (int i = steps - 1; i >= 0 && outcome != GameEngine.MoveOutcome.WON; i--) {
+                    int from = board.index(engine.getPlayerX(), engine.getPlayerY());
+                    int to = path[i];
+                    outcome = engine.move(board.rowOf(to) - board.rowOf(from), board.colOf(to) - board.colOf(from));
+                }
+            }
+            stats.games++;
+            if (outcome == GameEngine.MoveOutcome.WON) {
+                stats.wins++;
+            }
+            stats.moves += engine.getMoves();
+            stats.obstacles += engine.getObstacleCount();
+            stats.minMoves = Math.min(stats.minMoves, engine.getMoves());
+            stats.maxMoves = Math.max(stats.maxMoves, engine.getMoves());
+        }
+        return stats;
+    }
+
+    // Method to BFS to the nearest treasure; fills path with the cells to visit in reverse order and returns its length
+    private static int pathToNearestTreasure(GameEngine engine, int[] parent, int[] queue, int[] path) {
+        GameBoard board = engine.getBoard();
+        Arrays.fill(parent, -1);
+        int start = board.index(engine.getPlayerX(), engine.getPlayerY());
+        parent[start] = start;
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (board.get(cell) == GameBoard.TREASURE) {
+                int length = 0;
+                for (int step = cell; step != start; step = parent[step]) {
+                    path[length++] = step;
+                }
+                return length;
+            }
+            int x = board.rowOf(cell);
+            int y = board.colOf(cell);
+            for (int d = 0; d < 4; d++) {
+                int nx = x + (d == 0 ? -1 : d == 1 ? 1 : 0);
+                int ny = y + (d == 2 ? -1 : d == 3 ? 1 : 0);
+                if (board.inBounds(nx, ny)) {
+                    int next = board.index(nx, ny);
+                    if (parent[next] == -1 && board.get(next) != GameBoard.OBSTACLE) {
+                        parent[next] = cell;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,114 @@
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Process-wide cache of the game's sprites.
+// Each asset is decoded once, and each size it is drawn at is rendered into a display-compatible image shared by
+// every game. Views size their cells from the window, so every resize can ask for a new size; only the
+// SCALED_SIZES x sprites most recently used images are kept.
+class SpriteAtlas {
+    private static final String ASSET_DIR = "src/ICS4U/FinalProject/assets/";
+    private static final int SCALED_SIZES = 4; // Enough for the board and world views plus a resize in progress
+    private static final SpriteAtlas SHARED = new SpriteAtlas();
+
+    enum Sprite {
+        PLAYER("player.png"),
+        TREASURE("treasure.png"),
+        OBSTACLE("obstacle.png");
+
+        private final String fileName;
+
+        Sprite(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    private final Map<Sprite, CompletableFuture<BufferedImage>> sources = new EnumMap<>(Sprite.class);
+    private final Map<Integer, BufferedImage> scaled = new LinkedHashMap<>(16, 0.75f, true) { // Guarded by itself
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+            return size() > SCALED_SIZES * Sprite.values().length;
+        }
+    };
+
+    private SpriteAtlas() {
+    }
+
+    public static SpriteAtlas shared() {
+        return SHARED;
+    }
+
+    // Method to start decoding every asset in the background; safe to call more than once
+    public synchronized CompletableFuture<Void> preload() {
+        for (Sprite sprite : Sprite.values()) {
+            sources.computeIfAbsent(sprite, s -> CompletableFuture.supplyAsync(() -> decode(s)));
+        }
+        return CompletableFuture.allOf(sources.values().toArray(new CompletableFuture<?>[0]));
+    }
+
+    // Method to get a sprite pre-scaled to size x size pixels, or null if the asset could not be loaded
+    public BufferedImage get(Sprite sprite, int size) {
+        int key = sprite.ordinal() << 16 | size;
+        synchronized (scaled) {
+            BufferedImage image = scaled.get(key);
+            if (image != null) {
+                return image;
+            }
+        }
+        BufferedImage source = source(sprite).join(); // Only waits if the asset is still being decoded
+        if (source == null) {
+            return null;
+        }
+        BufferedImage image = scale(source, size); // Outside the lock; two threads may scale the same size once
+        synchronized (scaled) {
+            BufferedImage other = scaled.putIfAbsent(key, image);
+            return other != null ? other : image;
+        }
+    }
+
+    private synchronized CompletableFuture<BufferedImage> source(Sprite sprite) {
+        preload();
+        return sources.get(sprite);
+    }
+
+    private static BufferedImage decode(Sprite sprite) {
+        try {
+            return ImageIO.read(new File(ASSET_DIR + sprite.fileName));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Method to scale an image down in halving steps, which keeps large assets smooth without SCALE_SMOOTH
+    private static BufferedImage scale(BufferedImage source, int size) {
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(size, width / 2);
+            height = Math.max(size, height / 2);
+            BufferedImage next = createImage(width, height);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, width, height, null);
+            g.dispose();
+            current = next;
+        } while (width != size || height != size);
+        return current;
+    }
+
+    private static BufferedImage createImage(int width, int height) {
+        if (GraphicsEnvironment.isHeadless()) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration()
+                .createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+    }
+}
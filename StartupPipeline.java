@@ -0,0 +1,101 @@
+import javax.swing.*;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Loads the game's resources concurrently off the EDT so the menu can be shown straight away.
+// Records when each resource became ready and how long it took from launch until the menu was first painted, in
+// the shared metrics registry.
+class StartupPipeline {
+    private static final LatencyHistogram TIME_TO_MENU = Metrics.shared().histogram(
+            "treasure_startup_time_to_menu_seconds", "Time from launch until the menu was first painted");
+
+    enum Resource {
+        IMAGES("Images"),
+        MUSIC("Music"),
+        HIGH_SCORES("High scores"),
+        BOARDS("Boards");
+
+        private final String label;
+        private final LatencyHistogram ready;
+
+        Resource(String label) {
+            this.label = label;
+            this.ready = Metrics.shared().histogram("treasure_startup_" + name().toLowerCase() + "_ready_seconds",
+                    "Time from launch until " + label.toLowerCase() + " finished loading");
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final long launchNanos;
+    private final ExecutorService executor;
+    private final Set<Resource> readyResources = EnumSet.noneOf(Resource.class);
+    private Consumer<Resource> readyListener = resource -> { };
+    private boolean menuShown;
+
+    public StartupPipeline(long launchNanos) {
+        this.launchNanos = launchNanos;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Resource.values().length, runnable -> {
+            Thread thread = new Thread(runnable, "startup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Method to run a loading task on the startup threads and mark its resource ready once it finishes
+    public <T> CompletableFuture<T> load(Resource resource, Supplier<T> task) {
+        return track(resource, CompletableFuture.supplyAsync(task, executor));
+    }
+
+    // Method to mark a resource ready when an already running task finishes, whether or not it succeeded
+    public <T> CompletableFuture<T> track(Resource resource, CompletableFuture<T> task) {
+        task.whenComplete((result, error) -> {
+            if (error != null) {
+                error.printStackTrace();
+            }
+            markReady(resource);
+        });
+        return task;
+    }
+
+    // Method to set the callback run on the EDT each time a resource becomes ready
+    public void setReadyListener(Consumer<Resource> listener) {
+        readyListener = listener;
+    }
+
+    private void markReady(Resource resource) {
+        resource.ready.recordSince(launchNanos);
+        boolean allReady;
+        synchronized (this) {
+            readyResources.add(resource);
+            allReady = readyResources.size() == Resource.values().length;
+        }
+        SwingUtilities.invokeLater(() -> {
+            readyListener.accept(resource);
+            if (allReady) {
+                executor.shutdown();
+            }
+        });
+    }
+
+    public synchronized boolean isReady(Resource resource) {
+        return readyResources.contains(resource);
+    }
+
+    // Method to record the first time the menu is painted; later calls are ignored
+    public synchronized void menuShown() {
+        if (!menuShown) {
+            menuShown = true;
+            TIME_TO_MENU.recordSince(launchNanos);
+        }
+    }
+}
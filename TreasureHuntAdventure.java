@@ -33,7 +33,7 @@
  *          iii. Update player position
  *      b. Check for treasures
  *          i. If player finds a treasure, update treasures remaining
- *          ii. Pause and resume timer
+ *          ii. Show a message over the board without stopping the game
  *      c. Update game status
  *          i. Update UI with player position, moves, and treasures remaining
  *          ii. Check if all treasures are found
@@ -44,9 +44,8 @@
  *                  2. If no, exit the game
  * 4. Timer Management
  *      a. Start timer when game begins
- *      b. Update timer label every second
+ *      b. Update timer label ten times a second
  *      c. Stop timer when game ends
- *      d. Pause and resume timer as needed
  * 5. High Score Management
  *      a. Load high scores from file
  *      b. Add new high score
@@ -68,91 +67,239 @@ import java.awt.event.*;
 import java.io.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.sound.sampled.*;
 
 public class TreasureHuntAdventure extends JFrame {
     // Game grid size and elements
-    private final int gridSize = 10;
-    private final int[][] grid = new int[gridSize][gridSize];
-    private int playerX, playerY;
-    private int moves;
-    private int treasuresRemaining;
-    private final List<HighScore> highScores = new ArrayList<>();
-    private final JLabel[][] gridLabels = new JLabel[gridSize][gridSize];
-    private final Random random = new Random();
-    private Timer timer;
-    private long startTime;
-    private long elapsedTime;
-    private boolean timerStarted = false;
-    private final JLabel statusLabel = new JLabel("Time: 0s | Moves: 0 | Treasures remaining: 0");
-    private ImageIcon playerIcon;
-    private ImageIcon treasureIcon;
-    private ImageIcon obstacleIcon;
-    private long pausedTime;
+    private static final int DEFAULT_GRID_SIZE = 10;
+    private GameEngine engine; // Board, moves and treasures; this frame only presents them. Null until boards load
+    private static final int HIGH_SCORES_SHOWN = 10;
+    private static final String LEGACY_HIGH_SCORE_FILE = "src/ICS4U/FinalProject/highscores.txt";
+    private final HighScoreStore highScores = new HighScoreStore("src/ICS4U/FinalProject/highscores");
+    private final Leaderboard leaderboard = new Leaderboard(highScores); // Ranked, paged view of highScores
+    private static final int REVEAL_RADIUS = 1; // The radius within which to reveal cells
+    private BoardView boardView;
+    private static final String WORLD_DIRECTORY = "src/ICS4U/FinalProject/world";
+    private static final int WORLD_CACHED_CHUNKS = 64;
+    private static final int WORLD_TREASURES_PER_CHUNK = 3;
+    private ChunkedWorld world; // Only while exploring
+    private WorldView worldView;
+    private static final int POOLED_BOARDS = 3;
+    private BoardPool boardPool; // Boards generated in the background so Play and Play Again start at once
+    private int parMoves;
+    private final ReplayStore replays = new ReplayStore("src/ICS4U/FinalProject/replays.dat");
+    private static final int REPLAY_LEAD_IN_MILLIS = 500; // Pause before the first move of a replay
+    private Timer replayStep; // Next move of the replay being shown, so it can be stopped
+    private MoveLog moveLog; // Moves of the current game, saved with its high score
+    private final AutoSaver autoSaver = new AutoSaver("src/ICS4U/FinalProject/savegame.dat"); // Game in progress
+    private static final int QUEUED_MOVES = 4;
+    private static final int GAME_OVER_DELAY_MILLIS = 800; // Lets the last message be read before the dialog opens
+    private final InputQueue input = new InputQueue(QUEUED_MOVES);
+    private boolean drainScheduled;
+    private int heldKey = -1; // Key code of the arrow key held down, to tell auto-repeat from new presses
+    private final long[] awaitingPaint = new long[QUEUED_MOVES]; // When each move not yet painted was pressed
+    private int awaitingPaintCount;
+    private final KeyLatencyMeter keyLatency = new KeyLatencyMeter();
+    private final NotificationOverlay overlay = new NotificationOverlay();
+    private final DebugOverlay debugOverlay = new DebugOverlay(); // Live metrics, toggled with F3
+    private static final String METRICS_FILE = "src/ICS4U/FinalProject/metrics.prom";
+    private static final int METRICS_EXPORT_SECONDS = 15;
+    private static final LatencyHistogram UI_UPDATE = Metrics.shared().histogram(
+            "treasure_ui_update_seconds", "Time to apply queued moves and update the board and status label");
+    private long shownTime = -1;
+    private int shownMoves = -1, shownTreasures = -1;
+    private static final int CLOCK_REFRESH_MILLIS = 100;
+    private final GameClock clock = new GameClock(); // Scores and move timestamps, in milliseconds
+    private final Timer clockTicker = new Timer(CLOCK_REFRESH_MILLIS, e -> updateStatusLabel()); // One for every game
+    private long replayMillis; // Time shown while a replay is playing
+    private final JLabel statusLabel = new JLabel("Time: 0s | Moves: 0 | Par: 0 | Treasures remaining: 0");
+    private final StartupPipeline startup;
+    private final JLabel loadingLabel = new JLabel();
+    private MusicPlayer music; // Null until the music has loaded, or if it could not be played
+    private final JButton musicButton = new JButton("Pause Music");
+    private final JSlider volumeSlider = new JSlider(0, 100, 100);
+    private final JButton playButton = new JButton("Play");
+    private final JButton resumeButton = new JButton("Resume Game");
+    private final JButton replayButton = new JButton("Watch Best Replay");
     private enum GameState {
         MENU,
         RULES,
-        PLAYING
+        PLAYING,
+        REPLAY,
+        EXPLORING
     }
 
     private GameState currentState;
 
+    // What the boards startup task builds: the engine games are played on and the pool that feeds it boards
+    private static final class Boards {
+        final GameEngine engine;
+        final BoardPool pool;
 
-    // Method to play background music
-    private void playMusic() {
+        Boards(GameEngine engine, BoardPool pool) {
+            this.engine = engine;
+            this.pool = pool;
+        }
+    }
+
+    // Method to play background music, streamed from disk in a continuous loop
+    private MusicPlayer playMusic() {
         try {
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File("src/ICS4U/FinalProject/assets/BG_Music.wav"));
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioInputStream);
-            clip.loop(Clip.LOOP_CONTINUOUSLY); // Play continuously
-            clip.start();
+            MusicPlayer player = new MusicPlayer(new File("src/ICS4U/FinalProject/assets/BG_Music.wav"));
+            player.start();
+            return player;
         } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
             e.printStackTrace();
+            return null;
         }
     }
 
-    // Method to resize images
-    private ImageIcon resizeImageIcon(String path, int width, int height) {
-        ImageIcon icon = new ImageIcon(path);
-        Image image = icon.getImage();
-        Image resizedImage = image.getScaledInstance(width, height, java.awt.Image.SCALE_SMOOTH);
-        return new ImageIcon(resizedImage);
+    // Method to build the game engine and start the board pool. Both generate boards as they are built, and the
+    // pool first measures the typical difficulty, so this runs on a startup thread rather than before the menu
+    private Boards createBoards(int rows, int cols) {
+        GameEngine gameEngine = new GameEngine(rows, cols, new SplittableRandom());
+        BoardPool pool = new BoardPool(rows, cols, GameEngine.DEFAULT_TREASURES,
+                GameEngine.DEFAULT_MIN_OBSTACLE_PERCENT, GameEngine.DEFAULT_MAX_OBSTACLE_PERCENT,
+                new SplittableRandom(), POOLED_BOARDS, new RouteSolver(64));
+        pool.matchTypicalDifficulty(Runtime.getRuntime().availableProcessors()); // Fairer leaderboard
+        pool.start();
+        return new Boards(gameEngine, pool);
     }
 
-    // Method to load images for the game
-    private void loadImages() {
-        playerIcon = resizeImageIcon("src/ICS4U/FinalProject/assets/player.png", 70, 70);
-        treasureIcon = resizeImageIcon("src/ICS4U/FinalProject/assets/treasure.png", 75, 75);
-        obstacleIcon = resizeImageIcon("src/ICS4U/FinalProject/assets/obstacle.png", 95, 95);
+    // Method to enable the buttons that start a game once the engine and board pool are available
+    private void setBoards(Boards boards) {
+        engine = boards.engine;
+        boardPool = boards.pool;
+        playButton.setEnabled(true);
+        resumeButton.setEnabled(true);
+        replayButton.setEnabled(true);
+    }
+
+    // Method to enable the music controls once the player is available
+    private void setMusic(MusicPlayer player) {
+        music = player;
+        musicButton.setEnabled(player != null);
+        volumeSlider.setEnabled(player != null);
+        if (player != null) {
+            player.setVolume(volumeSlider.getValue() / 100f);
+        }
     }
 
-    // Constructor to set up the game
-    public TreasureHuntAdventure() {
+    // Boards, music and high scores load on the startup threads while the menu is shown; the game itself is only
+    // built on Play
+    public TreasureHuntAdventure(int rows, int cols, StartupPipeline startup) {
+        this.startup = startup;
         setTitle("Treasure Hunt Adventure");
         setSize(1300, 800);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
-        loadHighScores(); // Load high scores at the beginning
+        setGlassPane(overlay); // Game messages are drawn over the board instead of in modal dialogs
+        getLayeredPane().add(debugOverlay, JLayeredPane.PALETTE_LAYER);
+        getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("F3"), "toggleDebug");
+        getRootPane().getActionMap().put("toggleDebug", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                debugOverlay.toggle();
+            }
+        });
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (currentState == GameState.PLAYING && clock.isStarted() && !engine.isFinished()) {
+                    saveGame(); // Keeps the time played since the last move
+                }
+                autoSaver.flush();
+                if (music != null) {
+                    music.close(); // Release the audio line and stop the music threads before exiting
+                }
+            }
+
+            @Override
+            public void windowIconified(WindowEvent e) {
+                clock.pause(); // The board cannot be seen, so the time does not count
+            }
+
+            @Override
+            public void windowDeiconified(WindowEvent e) {
+                clock.resume();
+            }
+        });
+        startup.setReadyListener(resource -> updateLoadingLabel());
+        setMusic(null);
+        musicButton.addActionListener(e -> {
+            if (music.isPaused()) {
+                music.resume();
+                musicButton.setText("Pause Music");
+            } else {
+                music.pause();
+                musicButton.setText("Resume Music");
+            }
+        });
+        volumeSlider.addChangeListener(e -> music.setVolume(volumeSlider.getValue() / 100f));
+        playButton.setEnabled(false);
+        resumeButton.setEnabled(false);
+        replayButton.setEnabled(false);
+        playButton.addActionListener(e -> {
+            initializeGame();
+            startPlaying();
+        });
+        resumeButton.addActionListener(e -> resumeGame());
+        replayButton.addActionListener(e -> watchBestReplay());
+        startup.load(StartupPipeline.Resource.BOARDS, () -> createBoards(rows, cols))
+                .thenAcceptAsync(this::setBoards, SwingUtilities::invokeLater);
+        startup.load(StartupPipeline.Resource.MUSIC, this::playMusic)
+                .thenAcceptAsync(this::setMusic, SwingUtilities::invokeLater);
+        startup.load(StartupPipeline.Resource.HIGH_SCORES, () -> {
+            HighScoreMigrator.migrateIfNeeded(LEGACY_HIGH_SCORE_FILE, highScores); // First run after the text format
+            highScores.load();
+            leaderboard.refresh();
+            return null;
+        });
         initializeMenu();
-        playMusic();
-        initializeGame();
-        initializeUI();
-        currentState = GameState.MENU;
         setVisible(true);
     }
 
-    // Method for movement
+    // Method for movement: moves are queued and processed together once the pending key events are handled
     private final KeyAdapter keyAdapter = new KeyAdapter() {
         @Override
         public void keyPressed(KeyEvent e) {
-            if (currentState == GameState.PLAYING) {
-                switch (e.getKeyCode()) {
-                    case KeyEvent.VK_UP -> movePlayer(-1, 0);
-                    case KeyEvent.VK_DOWN -> movePlayer(1, 0);
-                    case KeyEvent.VK_LEFT -> movePlayer(0, -1);
-                    case KeyEvent.VK_RIGHT -> movePlayer(0, 1);
+            long now = System.nanoTime();
+            if (currentState == GameState.EXPLORING && e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                endExploring();
+                return;
+            }
+            if (currentState == GameState.REPLAY && e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                endReplay();
+                return;
+            }
+            if (!acceptingMoves()) {
+                return;
+            }
+            int dx = 0, dy = 0;
+            switch (e.getKeyCode()) {
+                case KeyEvent.VK_UP -> dx = -1;
+                case KeyEvent.VK_DOWN -> dx = 1;
+                case KeyEvent.VK_LEFT -> dy = -1;
+                case KeyEvent.VK_RIGHT -> dy = 1;
+                default -> {
+                    return;
                 }
             }
+            boolean repeat = e.getKeyCode() == heldKey;
+            heldKey = e.getKeyCode();
+            if (input.offer(dx, dy, repeat, now) && !drainScheduled) {
+                drainScheduled = true;
+                SwingUtilities.invokeLater(TreasureHuntAdventure.this::drainInput);
+            }
+        }
+
+        @Override
+        public void keyReleased(KeyEvent e) {
+            if (e.getKeyCode() == heldKey) {
+                heldKey = -1;
+            }
         }
     };
 
@@ -160,29 +307,33 @@ public class TreasureHuntAdventure extends JFrame {
     private void initializeMenu() {
         getContentPane().removeAll();
         currentState = GameState.MENU; // Update state
+        overlay.hideMessage();
         removeKeyListener(keyAdapter); // Remove key listener when in menu
 
-        JPanel menuPanel = new JPanel();
+        JPanel menuPanel = new JPanel() {
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                startup.menuShown(); // Time-to-menu is measured up to the first paint
+            }
+        };
         menuPanel.setLayout(new BoxLayout(menuPanel, BoxLayout.Y_AXIS));
         JLabel titleLabel = new JLabel("Treasure Hunt Adventure", SwingConstants.CENTER);
         titleLabel.setFont(new Font("Arial", Font.BOLD, 24));
         titleLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
-        JButton playButton = new JButton("Play");
         playButton.setAlignmentX(Component.CENTER_ALIGNMENT);
-        playButton.addActionListener(e -> {
-            getContentPane().removeAll();
-            initializeGame();
-            initializeUI();
-            loadHighScores();
-            currentState = GameState.PLAYING; // Update state
-            revalidate();
-            repaint();
-            setVisible(true);
-            addKeyListener(keyAdapter); // Add key listener when game starts
-            setFocusable(true);
-            requestFocusInWindow();
-        });
+        resumeButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        JButton exploreButton = new JButton("Explore");
+        exploreButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        exploreButton.addActionListener(e -> startExploring());
+
+        replayButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+
+        JButton highScoresButton = new JButton("High Scores");
+        highScoresButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        highScoresButton.addActionListener(e -> displayHighScores(null));
 
         JButton rulesButton = new JButton("Rules");
         rulesButton.setAlignmentX(Component.CENTER_ALIGNMENT);
@@ -197,9 +348,30 @@ public class TreasureHuntAdventure extends JFrame {
         menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         menuPanel.add(playButton);
         menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        if (autoSaver.hasSave()) {
+            menuPanel.add(resumeButton);
+            menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        }
+        menuPanel.add(exploreButton);
+        menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        menuPanel.add(replayButton);
+        menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+        menuPanel.add(highScoresButton);
+        menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         menuPanel.add(rulesButton);
         menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
         menuPanel.add(quitButton);
+        menuPanel.add(Box.createRigidArea(new Dimension(0, 20)));
+
+        JPanel musicPanel = new JPanel();
+        musicPanel.add(musicButton);
+        musicPanel.add(new JLabel("Volume"));
+        musicPanel.add(volumeSlider);
+        musicPanel.setMaximumSize(musicPanel.getPreferredSize());
+        menuPanel.add(musicPanel);
+        loadingLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        menuPanel.add(loadingLabel);
+        updateLoadingLabel();
 
         add(menuPanel, BorderLayout.CENTER);
         revalidate();
@@ -207,6 +379,18 @@ public class TreasureHuntAdventure extends JFrame {
         setVisible(true);
     }
 
+    // Method to show which resources are still loading
+    private void updateLoadingLabel() {
+        StringBuilder text = new StringBuilder();
+        for (StartupPipeline.Resource resource : StartupPipeline.Resource.values()) {
+            if (text.length() > 0) {
+                text.append(" | ");
+            }
+            text.append(resource.getLabel()).append(startup.isReady(resource) ? ": ready" : ": loading...");
+        }
+        loadingLabel.setText(text.toString());
+    }
+
     // Method to show the game rules
     private void showRules() {
         getContentPane().removeAll();
@@ -221,7 +405,9 @@ public class TreasureHuntAdventure extends JFrame {
                         1. Use arrow keys to move the player (P).
                         2. Find all the treasures (T) to win.
                         3. Avoid all obstacles (X).
-                        4. Collect all treasures in the least possible time to win."""
+                        4. Collect all treasures in the least possible time to win.
+                        5. In Explore mode the world never ends: collect as many treasures as you can
+                           before you hit an obstacle. Press Escape to stop exploring."""
         );
         rulesText.setEditable(false);
         rulesPanel.add(rulesText, BorderLayout.CENTER);
@@ -238,344 +424,422 @@ public class TreasureHuntAdventure extends JFrame {
 
     // Method to initialize the game
     private void initializeGame() {
-        moves = 0;
-        treasuresRemaining = 0;
-        timerStarted = false; // Reset timer status
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                grid[i][j] = 0;
-            }
-        }
-        placePlayer();
-        placeTreasures();
-        placeObstacles();
+        clock.reset();
+        BoardPool.Board next = boardPool.take();
+        engine.load(next.layout);
+        parMoves = next.parMoves;
+        moveLog = new MoveLog(engine);
+        shownMoves = -1; // Par changed, so the status label must be rebuilt
     }
 
-    // Method to start the game timer
-    private void startTimer() {
-        startTime = System.currentTimeMillis();
-        timer = new Timer(1000, e -> updateTimerLabel());
-        timer.start();
+    // Method to show the board and start taking moves for the game the engine holds
+    private void startPlaying() {
+        getContentPane().removeAll();
+        initializeUI();
+        currentState = GameState.PLAYING; // Update state
+        revalidate();
+        repaint();
+        setVisible(true);
+        addKeyListener(keyAdapter); // Add key listener when game starts
+        setFocusable(true);
+        requestFocusInWindow();
     }
 
-    // Method to stop the game timer
-    private void stopTimer() {
-        if (timer != null) {
-            timer.stop();
+    // Method to continue the saved game where it was left; the clock carries on from the saved time at the first move
+    private void resumeGame() {
+        GameSnapshot snapshot;
+        try {
+            snapshot = autoSaver.load();
+            if (!snapshot.restoreInto(engine)) {
+                JOptionPane.showMessageDialog(this, "The saved game was played on a " + snapshot.rows + "x" + snapshot.cols
+                        + " board. Start the game with those dimensions to resume it.", "Resume Game", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // Unreadable, or readable but not a game in progress; the engine is left as it was
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this, "The saved game could not be read.", "Resume Game", JOptionPane.WARNING_MESSAGE);
+            autoSaver.discard();
+            autoSaver.flush(); // So the menu no longer offers it
+            initializeMenu();
+            return;
         }
-        elapsedTime = (System.currentTimeMillis() - startTime) / 1000; // Elapsed time in seconds
+        clock.reset(TimeUnit.MILLISECONDS.toNanos(snapshot.elapsedMillis));
+        parMoves = snapshot.parMoves;
+        moveLog = snapshot.moveLog;
+        shownMoves = -1;
+        startPlaying();
     }
 
-    // Method to pause the timer
-    private void pauseTimer() {
-        if (timer != null) {
-            timer.stop();
-            pausedTime = System.currentTimeMillis();
-        }
+    // Method to hand the game so far to the auto-saver, which writes it off the EDT
+    private void saveGame() {
+        autoSaver.save(GameSnapshot.capture(engine, parMoves, clock.elapsedMillis(), moveLog));
     }
 
-    // Method to resume the timer
-    private void resumeTimer() {
-        if (timer != null) {
-            startTime += (System.currentTimeMillis() - pausedTime);
-            timer.start();
-        }
+    // Method to start the game clock and the label refresh
+    private void startTimer() {
+        clock.start();
+        clockTicker.start();
     }
 
-    // Method to update the timer label
-    private void updateTimerLabel() {
-        elapsedTime = (System.currentTimeMillis() - startTime) / 1000;
-        statusLabel.setText("Time: " + elapsedTime + "s | Moves: " + moves + " | Treasures remaining: " + treasuresRemaining);
+    // Method to stop the game clock; the final time is kept in the clock
+    private void stopTimer() {
+        clock.stop();
+        clockTicker.stop();
+        updateStatusLabel();
     }
 
-    // Method to place the player on the grid
-    private void placePlayer() {
-        playerX = random.nextInt(gridSize);
-        playerY = random.nextInt(gridSize);
-        grid[playerX][playerY] = 1;
+    // Method to refresh the status label, skipping the text rebuild when nothing it shows has changed
+    private void updateStatusLabel() {
+        long tenths = (currentState == GameState.REPLAY ? replayMillis : clock.elapsedMillis()) / 100;
+        int moves = engine.getMoves();
+        int treasuresRemaining = engine.getTreasuresRemaining();
+        if (tenths == shownTime && moves == shownMoves && treasuresRemaining == shownTreasures) {
+            return;
+        }
+        shownTime = tenths;
+        shownMoves = moves;
+        shownTreasures = treasuresRemaining;
+        statusLabel.setText(new StringBuilder(56)
+                .append("Time: ").append(tenths / 10).append('.').append(tenths % 10)
+                .append("s | Moves: ").append(moves)
+                .append(" | Par: ").append(parMoves)
+                .append(" | Treasures remaining: ").append(treasuresRemaining)
+                .toString());
     }
 
-    // Method to place treasures on the grid
-    private void placeTreasures() {
-        int treasures = 7;
-        treasuresRemaining = treasures;
-        while (treasures > 0) {
-            int x = random.nextInt(gridSize);
-            int y = random.nextInt(gridSize);
-            if (grid[x][y] == 0) {
-                grid[x][y] = 2;
-                treasures--;
+    // Method to initialize the game UI
+    private void initializeUI() {
+        boardView = new BoardView(engine.getBoard(), REVEAL_RADIUS, SpriteAtlas.shared()); // Sprites are decoded once per process
+        boardView.setPaintListener(this::boardPainted);
+        JScrollPane scrollPane = new JScrollPane(boardView);
+        scrollPane.setFocusable(false);
+        scrollPane.getViewport().addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                // Small boards grow to fill the window, large ones scroll
+                boardView.fitTo(scrollPane.getViewport().getExtentSize());
+                scrollPane.getVerticalScrollBar().setUnitIncrement(boardView.getCellSize());
+                scrollPane.getHorizontalScrollBar().setUnitIncrement(boardView.getCellSize());
             }
-        }
-    }
+        });
+        add(scrollPane, BorderLayout.CENTER);
 
-    // Method to place obstacles on the grid
-    private void placeObstacles() {
-        int obstacles = 15 + random.nextInt(15);
-        List<int[]> emptyCells = new ArrayList<>();
+        statusLabel.setHorizontalAlignment(SwingConstants.CENTER);
+        add(statusLabel, BorderLayout.NORTH);
 
-        // Collect all empty cells
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                if (grid[i][j] == 0) {
-                    emptyCells.add(new int[]{i, j});
-                }
-            }
-        }
+        updateUI();
+    }
 
-        while (obstacles > 0 && !emptyCells.isEmpty()) {
-            int[] cell = emptyCells.remove(random.nextInt(emptyCells.size()));
-            grid[cell[0]][cell[1]] = 3; // Place an obstacle
+    // Method to update the game UI
+    private void updateUI() {
+        long start = System.nanoTime();
+        boardView.setPlayer(engine.getPlayerX(), engine.getPlayerY()); // Repaints only the old and new reveal windows
+        updateStatusLabel();
+        UI_UPDATE.recordSince(start);
+    }
 
-            if (!allTreasuresReachable()) {
-                grid[cell[0]][cell[1]] = 0; // Remove the obstacle if it blocks all paths to any treasure
+    // Method to process every queued move, then refresh the status label once
+    private void drainInput() {
+        long start = System.nanoTime();
+        drainScheduled = false;
+        while (!input.isEmpty() && acceptingMoves()) {
+            if (currentState == GameState.EXPLORING) {
+                exploreMove(input.peekDx(), input.peekDy(), input.peekNanos());
             } else {
-                obstacles--;
+                movePlayer(input.peekDx(), input.peekDy(), input.peekNanos());
             }
+            input.remove();
+        }
+        input.clear(); // Moves queued after the game ended are dropped
+        if (currentState == GameState.EXPLORING) {
+            updateExploreLabel();
+        } else {
+            updateStatusLabel();
         }
+        UI_UPDATE.recordSince(start);
     }
 
-    private boolean allTreasuresReachable() {
-        int[][] directions = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
-        boolean[][] visited = new boolean[gridSize][gridSize];
-        Queue<int[]> queue = new LinkedList<>();
-        queue.add(new int[]{playerX, playerY});
-        visited[playerX][playerY] = true;
-
-        int treasuresFound = 0;
-
-        while (!queue.isEmpty()) {
-            int[] current = queue.poll();
-            int x = current[0];
-            int y = current[1];
+    // Method to move the player; messages go to the overlay so the next key press is handled straight away
+    private void movePlayer(int dx, int dy, long pressedNanos) {
+        if (!clock.isStarted()) {
+            startTimer();
+        }
 
-            if (grid[x][y] == 2) {
-                treasuresFound++;
+        GameEngine.MoveOutcome outcome = engine.move(dx, dy);
+        if (outcome != GameEngine.MoveOutcome.BLOCKED) {
+            moveLog.record(dx, dy, clock.elapsedMillis());
+            boardView.setPlayer(engine.getPlayerX(), engine.getPlayerY()); // Repaints only the old and new reveal windows
+            if (awaitingPaintCount < awaitingPaint.length) {
+                awaitingPaint[awaitingPaintCount++] = pressedNanos;
             }
-
-            for (int[] direction : directions) {
-                int newX = x + direction[0];
-                int newY = y + direction[1];
-
-                if (newX >= 0 && newX < gridSize && newY >= 0 && newY < gridSize && !visited[newX][newY] && grid[newX][newY] != 3) {
-                    visited[newX][newY] = true;
-                    queue.add(new int[]{newX, newY});
-                }
+        }
+        switch (outcome) {
+            case BLOCKED -> overlay.showMessage("You can't move outside the grid!", NotificationOverlay.WARNING);
+            case HIT_OBSTACLE -> {
+                stopTimer();
+                overlay.showMessage("You hit an obstacle! You lose. Time: " + GameClock.format(clock.elapsedMillis()) + "s", NotificationOverlay.WARNING);
+                afterGameOverDelay(() -> playAgainOrQuit("Do you want to play again?"));
+            }
+            case TREASURE -> overlay.showMessage("You found a treasure! " + engine.getTreasuresRemaining() + " left", NotificationOverlay.INFO);
+            case WON -> {
+                stopTimer();
+                overlay.showMessage("You found all the treasure!", NotificationOverlay.INFO);
+                afterGameOverDelay(this::checkGameStatus);
+            }
+            case MOVED -> {
             }
         }
-
-        return treasuresFound == treasuresRemaining;
+        if (engine.isFinished()) {
+            autoSaver.discard(); // A finished game cannot be resumed
+        } else if (outcome != GameEngine.MoveOutcome.BLOCKED) {
+            saveGame();
+        }
     }
 
-    // Method to initialize the game UI
-    private void initializeUI() {
-        loadImages(); // Load images
-
-        JPanel gridPanel = new JPanel(new GridLayout(gridSize, gridSize));
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                gridLabels[i][j] = new JLabel();
-                gridLabels[i][j].setOpaque(true);
-                gridLabels[i][j].setBackground(Color.WHITE);
-                gridLabels[i][j].setBorder(BorderFactory.createLineBorder(Color.BLACK));
-                gridLabels[i][j].setHorizontalAlignment(SwingConstants.CENTER);
-                gridLabels[i][j].setPreferredSize(new Dimension(50, 50));
-                gridPanel.add(gridLabels[i][j]);
-            }
-        }
-        add(gridPanel, BorderLayout.CENTER);
+    // Method to check whether arrow keys should move the player in the current state
+    private boolean acceptingMoves() {
+        return switch (currentState) {
+            case PLAYING -> !engine.isFinished();
+            case EXPLORING -> !world.isFinished();
+            default -> false;
+        };
+    }
 
+    // Method to start exploration mode on a new world
+    private void startExploring() {
+        getContentPane().removeAll();
+        overlay.hideMessage();
+        world = new ChunkedWorld(new SplittableRandom().nextLong(), WORLD_DIRECTORY, REVEAL_RADIUS, WORLD_CACHED_CHUNKS,
+                WORLD_TREASURES_PER_CHUNK, GameEngine.DEFAULT_MIN_OBSTACLE_PERCENT, GameEngine.DEFAULT_MAX_OBSTACLE_PERCENT);
+        worldView = new WorldView(world, SpriteAtlas.shared());
+        worldView.setPaintListener(this::boardPainted);
+        add(worldView, BorderLayout.CENTER);
         statusLabel.setHorizontalAlignment(SwingConstants.CENTER);
         add(statusLabel, BorderLayout.NORTH);
-
-        updateUI();
+        updateExploreLabel();
+        currentState = GameState.EXPLORING; // Update state
+        revalidate();
+        repaint();
+        addKeyListener(keyAdapter);
+        setFocusable(true);
+        requestFocusInWindow();
     }
 
-    // Method to update the game UI
-    private void updateUI() {
-        int radius = 1; // The radius within which to reveal cells
-        for (int i = 0; i < gridSize; i++) {
-            for (int j = 0; j < gridSize; j++) {
-                if (Math.abs(playerX - i) <= radius && Math.abs(playerY - j) <= radius) {
-                    switch (grid[i][j]) {
-                        case 0 -> {
-                            gridLabels[i][j].setBackground(Color.WHITE);
-                            gridLabels[i][j].setIcon(null);
-                        }
-                        case 1 -> {
-                            gridLabels[i][j].setBackground(Color.WHITE);
-                            gridLabels[i][j].setIcon(playerIcon);
-                        }
-                        case 2 -> {
-                            gridLabels[i][j].setBackground(Color.WHITE);
-                            gridLabels[i][j].setIcon(treasureIcon);
-                        }
-                        case 3 -> {
-                            gridLabels[i][j].setBackground(Color.WHITE);
-                            gridLabels[i][j].setIcon(obstacleIcon);
-                        }
-                    }
-                } else {
-                    gridLabels[i][j].setBackground(Color.GRAY); // Hidden cells
-                    gridLabels[i][j].setIcon(null);
-                }
+    // Method to move the player through the exploration world
+    private void exploreMove(int dx, int dy, long pressedNanos) {
+        GameEngine.MoveOutcome outcome = world.move(dx, dy);
+        worldView.repaint();
+        if (awaitingPaintCount < awaitingPaint.length) {
+            awaitingPaint[awaitingPaintCount++] = pressedNanos;
+        }
+        switch (outcome) {
+            case HIT_OBSTACLE -> {
+                overlay.showMessage("You hit an obstacle! Treasures found: " + world.getTreasuresFound(), NotificationOverlay.WARNING);
+                afterGameOverDelay(this::endExploring);
+            }
+            case TREASURE -> overlay.showMessage("You found a treasure! " + world.getTreasuresFound() + " so far", NotificationOverlay.INFO);
+            default -> {
             }
         }
-        statusLabel.setText("Time: " + elapsedTime + "s | Moves: " + moves + " | Treasures remaining: " + treasuresRemaining);
     }
 
-    // Method to move the player
-    private void movePlayer(int dx, int dy) {
-        if (!timerStarted) {
-            startTimer();
-            timerStarted = true;
-        }
-
-        int newX = playerX + dx;
-        int newY = playerY + dy;
+    // Method to show the exploration progress
+    private void updateExploreLabel() {
+        statusLabel.setText("Moves: " + world.getMoves()
+                + " | Treasures found: " + world.getTreasuresFound()
+                + " | Position: " + world.getPlayerRow() + ", " + world.getPlayerCol()
+                + " | Press Escape to stop exploring");
+    }
 
-        if (newX < 0 || newX >= gridSize || newY < 0 || newY >= gridSize) {
-            JOptionPane.showMessageDialog(this, "You can't move outside the grid!", "Invalid Move", JOptionPane.ERROR_MESSAGE);
-            return;
+    // Method to leave exploration mode; the world's chunks on disk are deleted
+    private void endExploring() {
+        if (currentState != GameState.EXPLORING) {
+            return; // Escape was pressed while the game-over delay was running
         }
+        removeKeyListener(keyAdapter);
+        input.clear();
+        JOptionPane.showMessageDialog(this, "You explored for " + world.getMoves() + " moves and found "
+                + world.getTreasuresFound() + " treasures.", "Exploration Over", JOptionPane.INFORMATION_MESSAGE);
+        world.close();
+        world = null;
+        worldView = null;
+        initializeMenu();
+    }
 
-        if (grid[newX][newY] == 3) {
-            stopTimer();
-            JOptionPane.showMessageDialog(this, "You hit an obstacle! You lose. Time: " + elapsedTime + "s", "Game Over", JOptionPane.ERROR_MESSAGE);
-            int option = JOptionPane.showConfirmDialog(this, "Do you want to play again?", "Play Again", JOptionPane.YES_NO_OPTION);
-            if (option == JOptionPane.YES_OPTION) {
-                initializeGame();
-                updateUI();
-            } else {
-                System.exit(0);
-            }
-            return;
+    // Method to record the input latency of every move shown by the paint that just finished
+    private void boardPainted() {
+        long now = System.nanoTime();
+        for (int i = 0; i < awaitingPaintCount; i++) {
+            keyLatency.record(awaitingPaint[i], now);
         }
+        awaitingPaintCount = 0;
+    }
 
-        grid[playerX][playerY] = 0;
-        playerX = newX;
-        playerY = newY;
+    // Method to run the end-of-game dialogs once the final board and message have been on screen for a moment
+    private void afterGameOverDelay(Runnable action) {
+        Timer delay = new Timer(GAME_OVER_DELAY_MILLIS, e -> action.run());
+        delay.setRepeats(false);
+        delay.start();
+    }
 
-        if (grid[playerX][playerY] == 2) {
-            treasuresRemaining--;
-            pauseTimer();
-            JOptionPane.showMessageDialog(this, "You found a treasure!", "Treasure Found", JOptionPane.INFORMATION_MESSAGE);
-            resumeTimer();
+    // Method to start a new game or quit
+    private void playAgainOrQuit(String question) {
+        int option = JOptionPane.showConfirmDialog(this, question, "Play Again", JOptionPane.YES_NO_OPTION);
+        if (option == JOptionPane.YES_OPTION) {
+            overlay.hideMessage();
+            initializeGame();
+            updateUI();
+        } else {
+            autoSaver.flush();
+            System.exit(0);
         }
-
-        grid[playerX][playerY] = 1;
-        moves++;
-        updateUI();
-        checkGameStatus();
     }
 
     // Method to check the game status
     private void checkGameStatus() {
-        if (treasuresRemaining == 0) {
-            stopTimer();
-            String playerName = JOptionPane.showInputDialog(this, "YOU FOUND ALL THE TREASURE IN " + elapsedTime + " SECONDS AND " + moves + " MOVES! ENTER YOUR NAME:", "Congratulations You Win!", JOptionPane.INFORMATION_MESSAGE);
+        if (engine.getTreasuresRemaining() == 0) {
+            int moves = engine.getMoves();
+            long timeMillis = clock.elapsedMillis();
+            String playerName = JOptionPane.showInputDialog(this, "YOU FOUND ALL THE TREASURE IN " + GameClock.format(timeMillis) + " SECONDS AND " + moves + " MOVES (PAR " + parMoves + ")! ENTER YOUR NAME:", "Congratulations You Win!", JOptionPane.INFORMATION_MESSAGE);
             if (playerName != null && !playerName.trim().isEmpty()) {
-                addHighScore(playerName, (int) elapsedTime, moves);
-            }
-            int option = JOptionPane.showConfirmDialog(this, "DO YOU WANT TO PLAY AGAIN?", "Play Again", JOptionPane.YES_NO_OPTION);
-            if (option == JOptionPane.YES_OPTION) {
-                initializeGame();
-                updateUI();
+                addHighScore(playerName, (int) timeMillis, moves, parMoves, engine.getSeed())
+                        .whenCompleteAsync((shown, error) -> {
+                            if (error != null) {
+                                error.printStackTrace();
+                            }
+                            playAgainOrQuit("DO YOU WANT TO PLAY AGAIN?");
+                        }, SwingUtilities::invokeLater);
             } else {
-                System.exit(0);
+                playAgainOrQuit("DO YOU WANT TO PLAY AGAIN?");
             }
         }
     }
 
-    // Method to load high scores from file
-    private void loadHighScores() {
-        highScores.clear(); // Clear the existing list to avoid duplication
-        try (BufferedReader reader = new BufferedReader(new FileReader("src/ICS4U/FinalProject/highscores.txt"))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(" - ");
-                if (parts.length == 2) {
-                    String[] details = parts[1].split(", ");
-                    if (details.length == 2) {
-                        int time = Integer.parseInt(details[0].trim().replace(" seconds", ""));
-                        int moves = Integer.parseInt(details[1].trim().replace(" moves", ""));
-                        highScores.add(new HighScore(parts[0], time, moves));
-                    }
-                }
-            }
-        } catch (IOException | NumberFormatException e) {
-            e.printStackTrace();
+    // Method to add a high score and save it, then show it on the leaderboard; the returned future completes once the
+    // leaderboard has been closed
+    private CompletableFuture<Void> addHighScore(String name, int timeMillis, int moves, int parMoves, long seed) {
+        name = name.trim();
+        if (name.length() > HighScore.MAX_NAME_LENGTH) {
+            name = name.substring(0, HighScore.MAX_NAME_LENGTH); // Longer names cannot be saved
         }
+        HighScore score = new HighScore(name, timeMillis, moves, parMoves, seed);
+        MoveLog log = moveLog;
+        CompletableFuture.runAsync(() -> {
+            try {
+                replays.append(log); // Lets the run be replayed or checked later
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        return CompletableFuture.runAsync(() -> leaderboard.add(score)) // Ranked by time first, then by moves
+                .thenCompose(added -> displayHighScores(score));
     }
 
-    // Method to add a high score and save it
-    private void addHighScore(String name, int time, int moves) {
-        loadHighScores(); // Reload existing high scores
-        highScores.add(new HighScore(name, time, moves));
-        highScores.sort((hs1, hs2) -> {
-            if (hs1.getTime() != hs2.getTime()) {
-                return Integer.compare(hs1.getTime(), hs2.getTime());
+    // Method to find the best high score that has a recorded game and play it back. The replay file can hold
+    // millions of games, so it is searched once for every top score's seed on a background thread.
+    private void watchBestReplay() {
+        CompletableFuture.supplyAsync(() -> {
+            leaderboard.refresh();
+            List<HighScore> best = leaderboard.top(HIGH_SCORES_SHOWN);
+            Set<Long> seeds = new HashSet<>();
+            for (HighScore hs : best) {
+                if (hs.getSeed() != GameEngine.NO_SEED) {
+                    seeds.add(hs.getSeed());
+                }
+            }
+            try {
+                Map<Long, MoveLog> logs = replays.findLatest(seeds);
+                for (HighScore hs : best) {
+                    MoveLog log = logs.get(hs.getSeed());
+                    if (log != null && log.matches(engine)) {
+                        return Map.entry(hs, log);
+                    }
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return null;
+        }).thenAcceptAsync(found -> {
+            if (currentState != GameState.MENU) {
+                return; // The player started something else while the file was searched
+            }
+            if (found == null) {
+                JOptionPane.showMessageDialog(this, "No replay is available for the current high scores on this board size.", "Replay", JOptionPane.INFORMATION_MESSAGE);
             } else {
-                return Integer.compare(hs1.getMoves(), hs2.getMoves());
+                startReplay(found.getValue(), found.getKey());
             }
-        }); // Sort by time first, then by moves
-        saveHighScores();
-        displayHighScores();
+        }, SwingUtilities::invokeLater);
     }
 
-    // Method to save high scores to file
-    private void saveHighScores() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("src/ICS4U/FinalProject/highscores.txt"))) {
-            for (HighScore hs : highScores) {
-                writer.write(hs.getName() + " - " + hs.getTime() + " seconds, " + hs.getMoves() + " moves");
-                writer.newLine();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+    // Method to show the board of a recorded game and replay its moves at the pace they were played
+    private void startReplay(MoveLog log, HighScore score) {
+        getContentPane().removeAll();
+        engine.newGame(log.getSeed());
+        parMoves = score.getParMoves();
+        replayMillis = 0;
+        currentState = GameState.REPLAY; // Update state
+        initializeUI();
+        setTitle("Treasure Hunt Adventure - Replay of " + score.getName() + " (Escape to stop)");
+        revalidate();
+        repaint();
+        addKeyListener(keyAdapter);
+        setFocusable(true);
+        requestFocusInWindow();
+        replayMove(log, 0);
     }
 
-    // Method to display high scores
-    private void displayHighScores() {
-        StringBuilder highScoreMessage = new StringBuilder("High Scores:\n");
-        for (HighScore hs : highScores) {
-            highScoreMessage.append(hs.getName())
-                    .append(" - ")
-                    .append(hs.getTime())
-                    .append(" seconds, ")
-                    .append(hs.getMoves())
-                    .append(" moves\n");
+    // Method to schedule the next recorded move after the same delay the player took
+    private void replayMove(MoveLog log, int move) {
+        if (move == log.size() || engine.isFinished()) {
+            JOptionPane.showMessageDialog(this, "Replay finished in " + engine.getMoves() + " moves.", "Replay", JOptionPane.INFORMATION_MESSAGE);
+            endReplay();
+            return;
         }
-        JOptionPane.showMessageDialog(this, highScoreMessage.toString(), "High Scores", JOptionPane.INFORMATION_MESSAGE);
-    }
-
-    // Main method to start the game
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(TreasureHuntAdventure::new);
-    }
-}
-
-// HighScore class to store high score data
-class HighScore {
-    private final String name;
-    private final int time;
-    private final int moves;
-
-    public HighScore(String name, int time, int moves) {
-        this.name = name;
-        this.time = time;
-        this.moves = moves;
+        long delay = move == 0 ? REPLAY_LEAD_IN_MILLIS : log.getMillis(move) - log.getMillis(move - 1);
+        Timer step = new Timer((int) Math.min(delay, Integer.MAX_VALUE), e -> {
+            int direction = log.direction(move);
+            engine.move(MoveLog.dx(direction), MoveLog.dy(direction));
+            replayMillis = log.getMillis(move);
+            updateUI();
+            replayMove(log, move + 1);
+        });
+        step.setRepeats(false);
+        step.start();
+        replayStep = step;
     }
 
-    public String getName() {
-        return name;
+    // Method to stop the replay being shown, if any, and go back to the menu
+    private void endReplay() {
+        if (currentState != GameState.REPLAY) {
+            return;
+        }
+        if (replayStep != null) {
+            replayStep.stop();
+            replayStep = null;
+        }
+        setTitle("Treasure Hunt Adventure");
+        initializeMenu();
     }
 
-    public int getTime() {
-        return time;
+    // Method to page through the high scores, starting at the given score if there is one. Refreshing can reload the
+    // whole score file, or wait for the startup task that is loading it, so it runs on a background thread and the
+    // dialog opens once it is done; the returned future completes when the dialog is closed
+    private CompletableFuture<Void> displayHighScores(HighScore highlight) {
+        return CompletableFuture.supplyAsync(() -> {
+            leaderboard.refresh(); // Pick up scores written by other game instances
+            return highlight != null ? leaderboard.rank(highlight) : 0;
+        }).thenAcceptAsync(rank -> new LeaderboardDialog(this, leaderboard, rank).setVisible(true),
+                SwingUtilities::invokeLater);
     }
 
-    public int getMoves() {
-        return moves;
+    // Main method to start the game, optionally with a board size: java TreasureHuntAdventure [rows] [cols]
+    public static void main(String[] args) {
+        StartupPipeline startup = new StartupPipeline(System.nanoTime());
+        startup.track(StartupPipeline.Resource.IMAGES, SpriteAtlas.shared().preload()); // Decode images while the window is built
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_GRID_SIZE;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : rows;
+        new MetricsExporter(METRICS_FILE, METRICS_EXPORT_SECONDS).start();
+        SwingUtilities.invokeLater(() -> new TreasureHuntAdventure(rows, cols, startup));
     }
-}
\ No newline at end of file
+}
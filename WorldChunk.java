@@ -0,0 +1,78 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// One SIZE x SIZE piece of the exploration world: its cells and which of them the player has seen.
+// A chunk is rebuilt from the world seed when it is first needed; it only has to be written to disk when it is
+// dirty, i.e. the player has collected a treasure in it or seen more of it since it was generated or read.
+class WorldChunk {
+    static final int SIZE = 16;
+    static final int CELLS = SIZE * SIZE;
+    private static final int FORMAT_VERSION = 1;
+
+    final int chunkRow;
+    final int chunkCol;
+    private final byte[] cells;
+    private final long[] explored = new long[CELLS / Long.SIZE]; // One bit per cell
+    private boolean dirty;
+
+    WorldChunk(int chunkRow, int chunkCol, byte[] cells) {
+        this.chunkRow = chunkRow;
+        this.chunkCol = chunkCol;
+        this.cells = cells;
+    }
+
+    // Method to pack chunk coordinates into one map key
+    static long key(int chunkRow, int chunkCol) {
+        return (long) chunkRow << 32 | (chunkCol & 0xffffffffL);
+    }
+
+    public byte get(int localRow, int localCol) {
+        return cells[localRow * SIZE + localCol];
+    }
+
+    public void set(int localRow, int localCol, byte value) {
+        cells[localRow * SIZE + localCol] = value;
+        dirty = true;
+    }
+
+    public boolean isExplored(int localRow, int localCol) {
+        int cell = localRow * SIZE + localCol;
+        return (explored[cell >>> 6] & 1L << cell) != 0;
+    }
+
+    // Method to remember that the player has seen a cell
+    public void explore(int localRow, int localCol) {
+        int cell = localRow * SIZE + localCol;
+        if ((explored[cell >>> 6] & 1L << cell) == 0) {
+            explored[cell >>> 6] |= 1L << cell;
+            dirty = true;
+        }
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void write(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        out.write(cells);
+        for (long bits : explored) {
+            out.writeLong(bits);
+        }
+    }
+
+    public static WorldChunk read(DataInput in, int chunkRow, int chunkCol) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported chunk version " + version);
+        }
+        byte[] cells = new byte[CELLS];
+        in.readFully(cells);
+        WorldChunk chunk = new WorldChunk(chunkRow, chunkCol, cells);
+        for (int i = 0; i < chunk.explored.length; i++) {
+            chunk.explored[i] = in.readLong();
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,86 @@
+import javax.swing.*;
+import java.awt.*;
+
+// Paints the exploration world as a fixed window of cells centred on the player, so it scrolls with every move.
+// Cells inside the reveal radius are shown as they are; cells explored earlier are shown as remembered, on a darker
+// background; cells never seen stay gray. The window is copied out of the world under one lock per paint.
+class WorldView extends JComponent {
+    private static final int VIEW_RADIUS = 7; // Cells shown on each side of the player
+    private static final int VIEW_CELLS = 2 * VIEW_RADIUS + 1;
+    private static final int SPRITE_INSET = 3;
+    private static final int MIN_CELL_SIZE = 16;
+    private static final int PREFERRED_CELL_SIZE = 48;
+    private static final Color REMEMBERED = new Color(200, 200, 200);
+    private static final LatencyHistogram PAINT = Metrics.shared().histogram(
+            "treasure_world_paint_seconds", "Time to paint the exploration window");
+
+    private final ChunkedWorld world;
+    private final SpriteAtlas sprites;
+    private final byte[] cells = new byte[VIEW_CELLS * VIEW_CELLS];
+    private final boolean[] explored = new boolean[VIEW_CELLS * VIEW_CELLS];
+    private Runnable paintListener;
+
+    public WorldView(ChunkedWorld world, SpriteAtlas sprites) {
+        this.world = world;
+        this.sprites = sprites;
+        setOpaque(true);
+        setFocusable(false);
+    }
+
+    public void setPaintListener(Runnable listener) {
+        paintListener = listener;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(VIEW_CELLS * PREFERRED_CELL_SIZE, VIEW_CELLS * PREFERRED_CELL_SIZE);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        g.setColor(getParent() != null ? getParent().getBackground() : Color.LIGHT_GRAY);
+        g.fillRect(0, 0, getWidth(), getHeight());
+        int cellSize = Math.max(MIN_CELL_SIZE, Math.min(getWidth(), getHeight()) / VIEW_CELLS);
+        int left = (getWidth() - cellSize * VIEW_CELLS) / 2;
+        int top = (getHeight() - cellSize * VIEW_CELLS) / 2;
+        int playerRow = world.getPlayerRow();
+        int playerCol = world.getPlayerCol();
+        int reveal = world.getRevealRadius();
+        world.copyWindow(playerRow - VIEW_RADIUS, playerCol - VIEW_RADIUS, VIEW_CELLS, cells, explored);
+
+        for (int r = 0; r < VIEW_CELLS; r++) {
+            for (int c = 0; c < VIEW_CELLS; c++) {
+                int px = left + c * cellSize;
+                int py = top + r * cellSize;
+                boolean visible = Math.abs(r - VIEW_RADIUS) <= reveal && Math.abs(c - VIEW_RADIUS) <= reveal;
+                boolean seen = explored[r * VIEW_CELLS + c];
+                g.setColor(visible ? Color.WHITE : seen ? REMEMBERED : Color.GRAY);
+                g.fillRect(px, py, cellSize, cellSize);
+                Image sprite = r == VIEW_RADIUS && c == VIEW_RADIUS ? sprite(SpriteAtlas.Sprite.PLAYER, cellSize)
+                        : seen ? spriteFor(cells[r * VIEW_CELLS + c], cellSize) : null;
+                if (sprite != null) {
+                    g.drawImage(sprite, px + SPRITE_INSET, py + SPRITE_INSET, null);
+                }
+                g.setColor(Color.BLACK);
+                g.drawRect(px, py, cellSize - 1, cellSize - 1);
+            }
+        }
+        PAINT.recordSince(start);
+        if (paintListener != null) {
+            paintListener.run();
+        }
+    }
+
+    private Image spriteFor(byte cell, int cellSize) {
+        return switch (cell) {
+            case GameBoard.TREASURE -> sprite(SpriteAtlas.Sprite.TREASURE, cellSize);
+            case GameBoard.OBSTACLE -> sprite(SpriteAtlas.Sprite.OBSTACLE, cellSize);
+            default -> null;
+        };
+    }
+
+    private Image sprite(SpriteAtlas.Sprite sprite, int cellSize) {
+        return sprites.get(sprite, cellSize - 2 * SPRITE_INSET);
+    }
+}